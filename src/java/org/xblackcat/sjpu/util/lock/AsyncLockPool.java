@@ -0,0 +1,176 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BiFunction;
+
+/**
+ * Non-blocking pool of exclusive locks. {@linkplain #acquire(Object)} never parks the calling thread: it returns
+ * a future which is completed with a {@linkplain LockToken} as soon as the lock for the key is handed over
+ * to the caller. Waiters of a key are served in FIFO order. A key entry is evicted from the pool as soon as
+ * the lock is released and no more waiters are queued.
+ * <p>
+ * Note that the future completion (and thus the dependent stages) is performed by the thread which releases
+ * the previous token, use {@code *Async} methods of {@linkplain CompletableFuture} to switch to a specific executor.
+ * A token released by a dependent stage during a hand-over is handed over further only after the stage returns, so
+ * a long chain of waiters releasing their tokens in dependent stages does not grow the stack. The locks are not
+ * reentrant.
+ *
+ * @author xBlackCat
+ */
+public class AsyncLockPool<ID> {
+    protected final ConcurrentMap<ID, Waiters> lockPool = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<HandOvers<ID>> handOvers = ThreadLocal.withInitial(HandOvers::new);
+    private final BiFunction<ID, Waiters, Waiters> handOver = (id, w) -> {
+        w.granted = w.queue.poll();
+        return w.granted == null ? null : w;
+    };
+
+    /**
+     * Requests the lock for the key.
+     *
+     * @param key lock key
+     * @return future which is completed when the lock is acquired. The lock should be released by
+     * {@linkplain LockToken#release()} method. Cancelled futures are skipped while handing the lock over.
+     */
+    public CompletableFuture<LockToken<ID>> acquire(ID key) {
+        final CompletableFuture<LockToken<ID>> future = new CompletableFuture<>();
+        lockPool.compute(key, (id, w) -> {
+            if (w == null) {
+                // Nobody is able to see the future yet, so it is safe to complete it inside the mapping function
+                future.complete(new LockToken<>(this, id));
+                return new Waiters();
+            }
+            w.queue.add(future);
+            return w;
+        });
+        return future;
+    }
+
+    /**
+     * Acquires the lock for the key only if it is not held at the time of invocation.
+     *
+     * @param key lock key
+     * @return token of the acquired lock or {@code null} if the lock is held by somebody else.
+     */
+    public LockToken<ID> tryAcquire(ID key) {
+        if (lockPool.containsKey(key) || lockPool.putIfAbsent(key, new Waiters()) != null) {
+            return null;
+        }
+        return new LockToken<>(this, key);
+    }
+
+    /**
+     * Hands the lock over to the next not cancelled waiter or evicts the key from the pool if there are no waiters.
+     * Hand-overs requested by dependent stages of a completed waiter are queued and performed by the outermost call
+     * (trampoline), so the stack depth does not depend on the amount of waiters.
+     */
+    protected void release(ID key) {
+        final CompletableFuture<LockToken<ID>> next = nextWaiter(key);
+        if (next == null) {
+            return;
+        }
+
+        final HandOvers<ID> pending = handOvers.get();
+        pending.queue.add(new HandOver<>(key, next));
+        if (pending.draining) {
+            return;
+        }
+
+        pending.draining = true;
+        try {
+            HandOver<ID> h;
+            while ((h = pending.queue.poll()) != null) {
+                if (!h.future.complete(new LockToken<>(this, h.key))) {
+                    // The waiter is cancelled: hand the lock over further
+                    final CompletableFuture<LockToken<ID>> following = nextWaiter(h.key);
+                    if (following != null) {
+                        pending.queue.add(new HandOver<>(h.key, following));
+                    }
+                }
+            }
+        } finally {
+            pending.draining = false;
+        }
+    }
+
+    /**
+     * Passes the lock ownership to the next waiter of the key.
+     *
+     * @return future of the new owner or {@code null} if the key is evicted from the pool
+     */
+    private CompletableFuture<LockToken<ID>> nextWaiter(ID key) {
+        final Waiters waiters = lockPool.computeIfPresent(key, handOver);
+        if (waiters == null) {
+            return null;
+        }
+        // Only the lock owner is able to modify the field
+        final CompletableFuture<LockToken<ID>> next = waiters.granted;
+        waiters.granted = null;
+        return next;
+    }
+
+    protected final class Waiters {
+        protected final Queue<CompletableFuture<LockToken<ID>>> queue = new ArrayDeque<>();
+        private CompletableFuture<LockToken<ID>> granted;
+    }
+
+    /**
+     * Per-thread queue of pending hand-overs.
+     */
+    private static final class HandOvers<ID> {
+        private final Queue<HandOver<ID>> queue = new ArrayDeque<>();
+        private boolean draining;
+    }
+
+    private static final class HandOver<ID> {
+        private final ID key;
+        private final CompletableFuture<LockToken<ID>> future;
+
+        private HandOver(ID key, CompletableFuture<LockToken<ID>> future) {
+            this.key = key;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Handle of an acquired lock.
+     */
+    public static final class LockToken<ID> implements AutoCloseable {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<LockToken> RELEASED =
+                AtomicIntegerFieldUpdater.newUpdater(LockToken.class, "released");
+
+        private final AsyncLockPool<ID> pool;
+        private final ID key;
+        private volatile int released;
+
+        LockToken(AsyncLockPool<ID> pool, ID key) {
+            this.pool = pool;
+            this.key = key;
+        }
+
+        public ID getKey() {
+            return key;
+        }
+
+        /**
+         * Releases the lock. Subsequent calls have no effect.
+         */
+        public void release() {
+            if (RELEASED.compareAndSet(this, 0, 1)) {
+                pool.release(key);
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-preferring read-write lock optimized for read-mostly access (big-reader lock). Reader counters are striped by
+ * thread and each stripe occupies its own cache line, so concurrent readers do not contend on a shared counter.
+ * A writer announces itself with a flag and waits until all the stripes are drained; new readers back off and wait
+ * for the writer, so writers are never starved by a stream of readers.
+ * <p>
+ * Both locks are reentrant and the write lock holder could acquire the read lock. Read holds are counted per thread,
+ * so a nested read acquisition never waits for a queued writer. A read lock should be released by the acquiring
+ * thread. Conditions are not supported.
+ *
+ * @author xBlackCat
+ */
+public class BigReaderLock implements ReadWriteLock {
+    /**
+     * Distance in {@code long}s between neighbour reader counters to place them to different cache lines.
+     */
+    private static final int STRIPE_STEP = 16;
+
+    private final AtomicLongArray readers;
+    private final int mask;
+    private final ReentrantLock writerLock = new ReentrantLock();
+    private final Lock readLock = new ReadLock();
+    private final Lock writeLock = new WriteLock();
+    /**
+     * Read holds of the current thread. Kept by the thread while it uses the lock to avoid garbage on every acquisition.
+     */
+    private final ThreadLocal<int[]> readHolds = ThreadLocal.withInitial(() -> new int[1]);
+
+    private volatile boolean writer;
+    private volatile Thread writerThread;
+
+    public BigReaderLock() {
+        this(Runtime.getRuntime().availableProcessors() << 1);
+    }
+
+    /**
+     * @param stripes amount of reader counters. The value is rounded up to the nearest power of two.
+     */
+    public BigReaderLock(int stripes) {
+        if (stripes <= 0 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("Invalid amount of stripes: " + stripes);
+        }
+        final int size = StripedLockPool.ceilingPowerOfTwo(stripes);
+        readers = new AtomicLongArray(size * STRIPE_STEP);
+        mask = size - 1;
+    }
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    public int getStripesAmount() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns amount of readers holding the lock at the moment.
+     */
+    public long getReadLockCount() {
+        long count = 0;
+        for (int i = 0; i <= mask; i++) {
+            count += readers.get(i * STRIPE_STEP);
+        }
+        return count;
+    }
+
+    public boolean isWriteLocked() {
+        return writer;
+    }
+
+    private int stripe() {
+        return (StripedLockPool.spread((int) Thread.currentThread().getId()) & mask) * STRIPE_STEP;
+    }
+
+    /**
+     * Registers a reader if there is no writer.
+     */
+    private boolean tryAcquireShared(int idx) {
+        readers.incrementAndGet(idx);
+        if (!writer) {
+            return true;
+        }
+        releaseShared(idx);
+        return false;
+    }
+
+    private void releaseShared(int idx) {
+        if (readers.decrementAndGet(idx) == 0 && writer) {
+            // The writer could wait for the stripe to be drained
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    private boolean isDrained() {
+        for (int i = 0; i <= mask; i++) {
+            if (readers.get(i * STRIPE_STEP) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Announces the writer and waits until all the readers are gone. Should be called with the writer lock held.
+     * An interruption is remembered and restored after all the readers are gone.
+     */
+    private void drainReadersUninterruptibly() {
+        writerThread = Thread.currentThread();
+        writer = true;
+        boolean interrupted = false;
+        while (!isDrained()) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Announces the writer and waits until all the readers are gone. Should be called with the writer lock held.
+     * The writer lock is released if the waiting is timed out or interrupted.
+     *
+     * @param deadline waiting deadline or {@code 0} to wait without a timeout
+     */
+    private boolean drainReaders(long deadline) throws InterruptedException {
+        writerThread = Thread.currentThread();
+        writer = true;
+        while (!isDrained()) {
+            if (deadline == 0) {
+                LockSupport.park(this);
+            } else {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    releaseExclusive();
+                    return false;
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            if (Thread.interrupted()) {
+                releaseExclusive();
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    private void releaseExclusive() {
+        writer = false;
+        writerThread = null;
+        writerLock.unlock();
+    }
+
+    private final class ReadLock implements Lock {
+        @Override
+        public void lock() {
+            final int[] holds = readHolds.get();
+            final int idx = stripe();
+            if (!tryAcquireNested(holds, idx)) {
+                while (!tryAcquireShared(idx)) {
+                    // Wait until the writer is gone
+                    writerLock.lock();
+                    writerLock.unlock();
+                }
+            }
+            holds[0]++;
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            final int[] holds = readHolds.get();
+            final int idx = stripe();
+            if (!tryAcquireNested(holds, idx)) {
+                while (!tryAcquireShared(idx)) {
+                    writerLock.lockInterruptibly();
+                    writerLock.unlock();
+                }
+            }
+            holds[0]++;
+        }
+
+        @Override
+        public boolean tryLock() {
+            final int[] holds = readHolds.get();
+            final int idx = stripe();
+            if (!tryAcquireNested(holds, idx) && !tryAcquireShared(idx)) {
+                return false;
+            }
+            holds[0]++;
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            final int[] holds = readHolds.get();
+            final int idx = stripe();
+            if (!tryAcquireNested(holds, idx)) {
+                final long deadline = System.nanoTime() + unit.toNanos(time);
+                while (!tryAcquireShared(idx)) {
+                    if (!writerLock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                        return false;
+                    }
+                    writerLock.unlock();
+                }
+            }
+            holds[0]++;
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            final int[] holds = readHolds.get();
+            if (holds[0] == 0) {
+                throw new IllegalMonitorStateException("Read lock is not held by the current thread");
+            }
+            holds[0]--;
+            releaseShared(stripe());
+        }
+
+        /**
+         * Registers a reader without checking for a writer if the current thread already holds the read or the write
+         * lock: a waiting writer could not proceed until the thread releases the lock anyway.
+         */
+        private boolean tryAcquireNested(int[] holds, int idx) {
+            if (holds[0] == 0 && !writerLock.isHeldByCurrentThread()) {
+                return false;
+            }
+            readers.incrementAndGet(idx);
+            return true;
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Conditions are not supported by read lock");
+        }
+    }
+
+    private final class WriteLock implements Lock {
+        @Override
+        public void lock() {
+            writerLock.lock();
+            if (writerLock.getHoldCount() == 1) {
+                drainReadersUninterruptibly();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            writerLock.lockInterruptibly();
+            if (writerLock.getHoldCount() == 1) {
+                drainReaders(0);
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (!writerLock.tryLock()) {
+                return false;
+            }
+            if (writerLock.getHoldCount() > 1) {
+                return true;
+            }
+            if (isDrained()) {
+                writerThread = Thread.currentThread();
+                writer = true;
+                if (isDrained()) {
+                    return true;
+                }
+            }
+            releaseExclusive();
+            return false;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            final long deadline = System.nanoTime() + unit.toNanos(time);
+            if (!writerLock.tryLock(time, unit)) {
+                return false;
+            }
+            if (writerLock.getHoldCount() > 1) {
+                return true;
+            }
+            // Zero deadline means no timeout
+            return drainReaders(deadline == 0 ? 1 : deadline);
+        }
+
+        @Override
+        public void unlock() {
+            if (!writerLock.isHeldByCurrentThread()) {
+                throw new IllegalMonitorStateException();
+            }
+            if (writerLock.getHoldCount() > 1) {
+                writerLock.unlock();
+            } else {
+                releaseExclusive();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Conditions are not supported by write lock");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[Write locks = " + (writer ? 1 : 0) + ", Read locks = " + getReadLockCount() + "]";
+    }
+}
@@ -0,0 +1,263 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lock pool without a global pool lock. Holders are created, reference-counted and evicted with atomic
+ * per-key {@code compute} operations of a {@linkplain ConcurrentHashMap}, so acquiring locks for different keys
+ * never contends on a shared monitor. A holder is removed from the pool as soon as its reference count
+ * drops to zero, the same way as in {@linkplain LockPool}.
+ * <p>
+ * Optionally evicted holders could be recycled: the pool keeps up to the specified amount of unused holders (together
+ * with their locks) and reuses them for new keys instead of allocating new ones. The option is available only for
+ * pools with key-independent locks. Locks of a recycling pool do not support conditions: a recycled lock could be
+ * reused for another key and its conditions would silently switch to that key.
+ *
+ * @author xBlackCat
+ */
+public class ConcurrentLockPool<ID> implements ILockPool<ID> {
+    protected final Function<ID, Lock> lockProvider;
+    protected final ConcurrentMap<ID, LockHolder> lockPool = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<HeldLocks<LockHolder>> heldLocks = ThreadLocal.withInitial(HeldLocks::new);
+    private final BiFunction<ID, LockHolder, LockHolder> useHolder;
+    private final BiFunction<ID, LockHolder, LockHolder> releaseHolder = (id, h) -> h.decrement() ? null : h;
+    private final HolderRecycler<LockHolder> recycler;
+
+    public ConcurrentLockPool() {
+        this((Supplier<Lock>) ReentrantLock::new);
+    }
+
+    public ConcurrentLockPool(Supplier<Lock> lockProvider) {
+        this(id -> lockProvider.get());
+    }
+
+    /**
+     * @param lockProvider       lock factory
+     * @param maxRecycledHolders maximum amount of evicted holders kept for reuse (rounded up to the nearest power of two).
+     *                           Zero value disables recycling. Locks of a recycling pool do not support conditions.
+     */
+    public ConcurrentLockPool(Supplier<Lock> lockProvider, int maxRecycledHolders) {
+        this(id -> lockProvider.get(), maxRecycledHolders > 0 ? new HolderRecycler<>(maxRecycledHolders) : null);
+    }
+
+    public ConcurrentLockPool(Function<ID, Lock> lockProvider) {
+        this(lockProvider, null);
+    }
+
+    private ConcurrentLockPool(Function<ID, Lock> lockProvider, HolderRecycler<LockHolder> recycler) {
+        this.lockProvider = lockProvider;
+        this.recycler = recycler;
+        useHolder = (id, h) -> {
+            if (h == null && recycler != null) {
+                h = recycler.poll();
+            }
+            if (h == null) {
+                h = new LockHolder(lockProvider.apply(id));
+            }
+            h.increment();
+            return h;
+        };
+    }
+
+    @Override
+    public Lock getLock(ID key) {
+        return new LockWrapper(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The acquired holder is remembered by the current thread, so nested acquisitions of the key by the thread
+     * do not touch the pool and the lock is released without looking up the holder again.
+     */
+    @Override
+    public void lock(ID key) {
+        acquire(key, LockAcquirer.LOCK);
+    }
+
+    @Override
+    public boolean tryLock(ID key, long time, TimeUnit unit) throws InterruptedException {
+        return acquire(key, l -> l.tryLock(time, unit));
+    }
+
+    @Override
+    public void unlock(ID key) {
+        final HeldLocks<LockHolder> held = heldLocks.get();
+        final int idx = held.indexOf(key);
+        if (idx < 0) {
+            // The holder could be still used by the owner thread, so it should not be released by a foreign one
+            throw new IllegalStateException("Lock '" + key + "' is not acquired by the current thread");
+        }
+
+        final LockHolder lockHolder = held.holderAt(idx);
+        // Lock should be released before the holder is evicted from the pool
+        lockHolder.getLock().unlock();
+        if (held.decrementAt(idx) == 0) {
+            releaseLockFromPool(key, lockHolder);
+        }
+    }
+
+    /**
+     * Acquires the lock for the key with the given acquisition function. The holder is taken from the pool only for
+     * the first acquisition of the key by the current thread and is returned back if the lock is not acquired.
+     * The acquired lock should be released by {@linkplain #unlock(Object)} method.
+     *
+     * @return {@code true} if the lock is acquired
+     */
+    protected <E extends Throwable> boolean acquire(ID key, LockAcquirer<E> acquirer) throws E {
+        final HeldLocks<LockHolder> held = heldLocks.get();
+        final int idx = held.indexOf(key);
+        if (idx >= 0) {
+            // Nested acquisition: the holder is already referenced by the current thread
+            if (!acquirer.acquire(held.holderAt(idx).getLock())) {
+                return false;
+            }
+            held.incrementAt(idx);
+            return true;
+        }
+
+        LockHolder lockHolder = useLockFromPool(key);
+        boolean locked = false;
+        try {
+            locked = acquirer.acquire(lockHolder.getLock());
+        } finally {
+            if (!locked) {
+                releaseLockFromPool(key, lockHolder);
+            }
+        }
+        if (locked) {
+            held.push(key, lockHolder);
+        }
+        return locked;
+    }
+
+    /**
+     * Gets a holder for the key from the pool (creates a new one if necessary) and increments its reference counter
+     * in a single atomic operation.
+     */
+    protected LockHolder useLockFromPool(ID key) {
+        return lockPool.compute(key, useHolder);
+    }
+
+    /**
+     * Decrements the reference counter of the key holder and evicts the holder from the pool if it is not used anymore.
+     */
+    protected void releaseLockFromPool(ID key, LockHolder lockHolder) {
+        if (lockPool.computeIfPresent(key, releaseHolder) == null && recycler != null && lockHolder.getRequested() == 0) {
+            // The holder is evicted from the pool and is not reachable anymore
+            recycler.offer(lockHolder);
+        }
+    }
+
+    protected LockHolder getLockFromPool(ID key) {
+        final LockHolder lockHolder = lockPool.get(key);
+        if (lockHolder == null) {
+            throw new IllegalStateException("Lock '" + key + "' is not acquired");
+        }
+        return lockHolder;
+    }
+
+    private class LockWrapper implements Lock {
+        private final ID key;
+
+        public LockWrapper(ID key) {
+            this.key = key;
+        }
+
+        @Override
+        public void lock() {
+            ConcurrentLockPool.this.lock(key);
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            acquire(key, LockAcquirer.LOCK_INTERRUPTIBLY);
+        }
+
+        @Override
+        public boolean tryLock() {
+            return acquire(key, LockAcquirer.TRY_LOCK);
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return ConcurrentLockPool.this.tryLock(key, time, unit);
+        }
+
+        @Override
+        public void unlock() {
+            ConcurrentLockPool.this.unlock(key);
+        }
+
+        @Override
+        public Condition newCondition() {
+            if (recycler != null) {
+                throw new UnsupportedOperationException("Conditions are not supported by pools recycling holders");
+            }
+            return getLockFromPool(key).getLock().newCondition();
+        }
+    }
+
+    /**
+     * Way to acquire a lock taken from the pool. The interface is shared with other pools tracking locks held by
+     * a thread.
+     */
+    @FunctionalInterface
+    protected interface LockAcquirer<E extends Throwable> {
+        LockAcquirer<RuntimeException> LOCK = l -> {
+            l.lock();
+            return true;
+        };
+        LockAcquirer<InterruptedException> LOCK_INTERRUPTIBLY = l -> {
+            l.lockInterruptibly();
+            return true;
+        };
+        LockAcquirer<RuntimeException> TRY_LOCK = Lock::tryLock;
+
+        /**
+         * @return {@code true} if the lock is acquired
+         */
+        boolean acquire(Lock lock) throws E;
+    }
+
+    /**
+     * Compact lock holder: reference counter is stored inline.
+     */
+    protected static final class LockHolder {
+        private static final AtomicIntegerFieldUpdater<LockHolder> REQUESTED =
+                AtomicIntegerFieldUpdater.newUpdater(LockHolder.class, "requested");
+
+        protected final Lock lock;
+        protected volatile int requested;
+
+        LockHolder(Lock lock) {
+            this.lock = lock;
+        }
+
+        public Lock getLock() {
+            return lock;
+        }
+
+        public int getRequested() {
+            return requested;
+        }
+
+        public void increment() {
+            REQUESTED.incrementAndGet(this);
+        }
+
+        public boolean decrement() {
+            return 0 == REQUESTED.decrementAndGet(this);
+        }
+    }
+}
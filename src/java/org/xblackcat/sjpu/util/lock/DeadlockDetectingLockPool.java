@@ -0,0 +1,270 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Lock pool which detects deadlocks between its keys. Each waiting thread is registered in a wait-for graph with the
+ * lock it waits for, while the lock itself knows its owner. A thread searches for a cycle in the graph when it fails to
+ * acquire a lock immediately and then periodically while waiting, so uncontended acquisitions do not pay for
+ * the bookkeeping.
+ * <p>
+ * Every thread of a cycle detects it, but only one victim handles the cycle: the thread with the smallest
+ * {@linkplain Thread#getId() id}. The victim passes the cycle to the listener and, if the pool is configured to break
+ * deadlocks, stops waiting and gets a {@linkplain DeadlockException}. Other threads of the cycle keep waiting.
+ * <p>
+ * Locks of the pool are always {@linkplain ReentrantLock reentrant locks}.
+ *
+ * @author xBlackCat
+ */
+public class DeadlockDetectingLockPool<ID> extends ConcurrentLockPool<ID> {
+    public static final long DEFAULT_CHECK_INTERVAL_MILLIS = 100;
+
+    protected final Detector detector;
+
+    /**
+     * Creates a pool which breaks detected deadlocks.
+     */
+    public DeadlockDetectingLockPool() {
+        this(true, e -> {
+        });
+    }
+
+    /**
+     * @param breakDeadlocks {@code true} to throw {@linkplain DeadlockException} to a thread of a detected cycle and
+     *                       {@code false} to only report the cycle and keep waiting
+     * @param listener       listener of detected cycles
+     */
+    public DeadlockDetectingLockPool(boolean breakDeadlocks, Consumer<? super DeadlockException> listener) {
+        this(breakDeadlocks, listener, DEFAULT_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param breakDeadlocks {@code true} to throw {@linkplain DeadlockException} to a thread of a detected cycle and
+     *                       {@code false} to only report the cycle and keep waiting
+     * @param listener       listener of detected cycles
+     * @param checkInterval  interval between cycle searches of a waiting thread
+     * @param unit           the time unit of the {@code checkInterval} argument
+     */
+    public DeadlockDetectingLockPool(
+            boolean breakDeadlocks,
+            Consumer<? super DeadlockException> listener,
+            long checkInterval,
+            TimeUnit unit
+    ) {
+        this(new Detector(breakDeadlocks, listener, unit.toNanos(checkInterval)));
+    }
+
+    private DeadlockDetectingLockPool(Detector detector) {
+        super(id -> new TrackedLock(id, detector));
+        this.detector = detector;
+    }
+
+    /**
+     * Returns amount of threads waiting for the pool locks after a failed immediate acquisition.
+     */
+    public int getWaitingThreads() {
+        return detector.waiting.size();
+    }
+
+    /**
+     * Wait-for graph: maps a waiting thread to the lock it waits for.
+     */
+    protected static final class Detector {
+        private static final int MAX_CYCLE_LENGTH = 1024;
+
+        private final ConcurrentMap<Thread, TrackedLock> waiting = new ConcurrentHashMap<>();
+        private final boolean breakDeadlocks;
+        private final Consumer<? super DeadlockException> listener;
+        private final long checkIntervalNanos;
+
+        private Detector(boolean breakDeadlocks, Consumer<? super DeadlockException> listener, long checkIntervalNanos) {
+            if (checkIntervalNanos <= 0) {
+                throw new IllegalArgumentException("Check interval should be positive: " + checkIntervalNanos);
+            }
+            this.breakDeadlocks = breakDeadlocks;
+            this.listener = listener;
+            this.checkIntervalNanos = checkIntervalNanos;
+        }
+
+        /**
+         * Follows the chain waiter -> lock -> owner -> lock ... starting from the current thread.
+         *
+         * @return the detected cycle or {@code null}
+         */
+        private DeadlockException findCycle(Thread current, TrackedLock lock) {
+            final List<Thread> threads = new ArrayList<>();
+            final List<Object> keys = new ArrayList<>();
+            threads.add(current);
+
+            for (int i = 0; i < MAX_CYCLE_LENGTH; i++) {
+                keys.add(lock.key);
+                final Thread owner = lock.getOwner();
+                if (owner == null) {
+                    return null;
+                }
+                if (owner == current) {
+                    return buildException(threads, keys);
+                }
+                if (threads.contains(owner)) {
+                    // A cycle without the current thread: it is detected by the cycle threads themselves
+                    return null;
+                }
+                lock = waiting.get(owner);
+                if (lock == null) {
+                    return null;
+                }
+                threads.add(owner);
+            }
+            return null;
+        }
+
+        /**
+         * @return {@code true} if a cycle is detected and reported by the current thread
+         */
+        private boolean check(Thread current, TrackedLock lock) {
+            final DeadlockException cycle = findCycle(current, lock);
+            // The graph is not a consistent snapshot: a cycle should be confirmed by a second walk
+            if (cycle == null || !cycle.getThreads().equals(threadsOf(findCycle(current, lock)))) {
+                return false;
+            }
+            if (!isVictim(current, cycle.getThreads())) {
+                // The cycle is handled by another thread of the cycle
+                return false;
+            }
+            listener.accept(cycle);
+            if (breakDeadlocks) {
+                throw cycle;
+            }
+            return true;
+        }
+
+        private static boolean isVictim(Thread current, List<Thread> threads) {
+            for (Thread t : threads) {
+                if (t.getId() < current.getId()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static List<Thread> threadsOf(DeadlockException cycle) {
+            return cycle == null ? null : cycle.getThreads();
+        }
+
+        private static DeadlockException buildException(List<Thread> threads, List<Object> keys) {
+            final StringBuilder message = new StringBuilder("Deadlock detected:");
+            for (int i = 0; i < threads.size(); i++) {
+                message.append(" thread '")
+                        .append(threads.get(i).getName())
+                        .append("' waits for lock '")
+                        .append(keys.get(i))
+                        .append("' held by thread '")
+                        .append(threads.get((i + 1) % threads.size()).getName())
+                        .append("';");
+            }
+            return new DeadlockException(message.toString(), threads, keys);
+        }
+    }
+
+    /**
+     * Reentrant lock which registers waiting threads in the wait-for graph and looks for cycles while waiting.
+     */
+    protected static final class TrackedLock extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Object key;
+        private final transient Detector detector;
+
+        private TrackedLock(Object key, Detector detector) {
+            this.key = key;
+            this.detector = detector;
+        }
+
+        @Override
+        public void lock() {
+            if (tryLock()) {
+                return;
+            }
+            boolean interrupted = false;
+            try {
+                while (true) {
+                    try {
+                        acquire(0, false);
+                        return;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (!tryLock()) {
+                acquire(0, false);
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            return tryLock() || acquire(System.nanoTime() + unit.toNanos(time), true);
+        }
+
+        /**
+         * Contended path: waits for the lock in slices and looks for a cycle before every slice until a cycle is
+         * reported.
+         */
+        private boolean acquire(long deadline, boolean timed) throws InterruptedException {
+            final Thread current = Thread.currentThread();
+            detector.waiting.put(current, this);
+            boolean reported = false;
+            try {
+                while (true) {
+                    if (!reported) {
+                        reported = detector.check(current, this);
+                    }
+
+                    long slice = detector.checkIntervalNanos;
+                    if (timed) {
+                        final long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        slice = Math.min(slice, remaining);
+                    }
+                    if (super.tryLock(slice, TimeUnit.NANOSECONDS)) {
+                        return true;
+                    }
+                }
+            } finally {
+                detector.waiting.remove(current);
+            }
+        }
+
+        @Override
+        protected Thread getOwner() {
+            return super.getOwner();
+        }
+
+        @Override
+        public String toString() {
+            return "TrackedLock{key=" + key + ", " + super.toString() + '}';
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown by a {@linkplain DeadlockDetectingLockPool} to a waiting thread to break a detected lock cycle. The exception
+ * is also passed to the deadlock listener of the pool.
+ *
+ * @author xBlackCat
+ */
+public class DeadlockException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Thread> threads;
+    private final List<?> keys;
+
+    public DeadlockException(String message, List<Thread> threads, List<?> keys) {
+        super(message);
+        this.threads = Collections.unmodifiableList(threads);
+        this.keys = Collections.unmodifiableList(keys);
+    }
+
+    /**
+     * Returns threads of the cycle: each thread waits for a lock of the corresponding key held by the next thread.
+     */
+    public List<Thread> getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns keys of the locks the cycle threads are waiting for.
+     */
+    public List<?> getKeys() {
+        return keys;
+    }
+}
@@ -0,0 +1,75 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Per-thread stack of lock holders acquired by the thread. Each key is registered once with an acquisition counter,
+ * so nested acquisitions of an already held key are counted locally without touching the pool. Allows to release
+ * a lock without looking up its holder in the pool again. The stack is searched from the top as locks are usually
+ * released in reverse order.
+ *
+ * @author xBlackCat
+ */
+final class HeldLocks<H> {
+    private Object[] keys = new Object[8];
+    private Object[] holders = new Object[8];
+    private int[] counts = new int[8];
+    private int size;
+
+    /**
+     * Registers a newly acquired holder for the key.
+     */
+    void push(Object key, H holder) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size << 1);
+            holders = Arrays.copyOf(holders, size << 1);
+            counts = Arrays.copyOf(counts, size << 1);
+        }
+        keys[size] = key;
+        holders[size] = holder;
+        counts[size] = 1;
+        size++;
+    }
+
+    /**
+     * @return position of the key in the stack or {@code -1} if the key is not registered.
+     */
+    int indexOf(Object key) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (Objects.equals(keys[i], key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    H holderAt(int i) {
+        return (H) holders[i];
+    }
+
+    void incrementAt(int i) {
+        counts[i]++;
+    }
+
+    /**
+     * Decrements the acquisition counter of the entry and removes the entry if the counter drops to zero.
+     *
+     * @return remaining amount of acquisitions
+     */
+    int decrementAt(int i) {
+        final int count = --counts[i];
+        if (count == 0) {
+            size--;
+            if (i < size) {
+                System.arraycopy(keys, i + 1, keys, i, size - i);
+                System.arraycopy(holders, i + 1, holders, i, size - i);
+                System.arraycopy(counts, i + 1, counts, i, size - i);
+            }
+            keys[size] = null;
+            holders[size] = null;
+        }
+        return count;
+    }
+}
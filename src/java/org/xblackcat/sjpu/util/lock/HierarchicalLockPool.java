@@ -0,0 +1,432 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Pool of hierarchical locks with intention modes. Parent of a key is resolved by the parent mapper function
+ * ({@code null} value means the key is a root). Locking a key in a {@linkplain Mode mode} takes the corresponding
+ * intention lock ({@linkplain Mode#IS} or {@linkplain Mode#IX}) on every ancestor of the key from the root down,
+ * so exclusive operations on different items of a collection could run concurrently while a shared or exclusive lock
+ * on the whole collection still excludes them.
+ * <p>
+ * {@linkplain #getLock(Object)} and other {@linkplain ILockPool} methods work in the {@linkplain Mode#X exclusive}
+ * mode. The locks are not reentrant: a thread holding a key in {@linkplain Mode#X} or {@linkplain Mode#S} mode should
+ * not lock descendants of the key as the lock already covers them.
+ * <p>
+ * A waiting {@linkplain Mode#S} or {@linkplain Mode#X} request of a key blocks new incompatible intention requests of
+ * the key, so a stream of operations on items could not starve an operation on the whole collection. Threads already
+ * holding the key in any mode are not blocked by waiters, so a thread could lock several items of a collection.
+ *
+ * @author xBlackCat
+ */
+public class HierarchicalLockPool<ID> implements ILockPool<ID> {
+    private static final int MAX_DEPTH = 256;
+
+    protected final Function<ID, ID> parentMapper;
+    protected final ConcurrentMap<ID, IntentionLockHolder> lockPool = new ConcurrentHashMap<>();
+
+    private final BiFunction<ID, IntentionLockHolder, IntentionLockHolder> useHolder = (id, h) -> {
+        if (h == null) {
+            h = new IntentionLockHolder();
+        }
+        h.increment();
+        return h;
+    };
+    private final BiFunction<ID, IntentionLockHolder, IntentionLockHolder> releaseHolder = (id, h) -> h.decrement() ? null : h;
+
+    /**
+     * @param parentMapper function to resolve parent of a key. Should return {@code null} for root keys.
+     */
+    public HierarchicalLockPool(Function<ID, ID> parentMapper) {
+        this.parentMapper = parentMapper;
+    }
+
+    @Override
+    public Lock getLock(ID key) {
+        return getLock(key, Mode.X);
+    }
+
+    @Override
+    public void lock(ID key) {
+        lock(key, Mode.X);
+    }
+
+    @Override
+    public boolean tryLock(ID key, long time, TimeUnit unit) throws InterruptedException {
+        return tryLock(key, Mode.X, time, unit);
+    }
+
+    @Override
+    public void unlock(ID key) {
+        unlock(key, Mode.X);
+    }
+
+    public Lock getLock(ID key, Mode mode) {
+        return new LockWrapper(key, mode);
+    }
+
+    /**
+     * Acquires the key lock in the specified mode and intention locks on all the key ancestors.
+     */
+    public void lock(ID key, Mode mode) {
+        final List<ID> path = pathTo(key);
+        int locked = 0;
+        try {
+            for (int i = path.size() - 1; i >= 0; i--) {
+                final IntentionLockHolder holder = lockPool.compute(path.get(i), useHolder);
+                try {
+                    holder.lock(i == 0 ? mode : mode.intention());
+                } catch (RuntimeException | Error e) {
+                    lockPool.computeIfPresent(path.get(i), releaseHolder);
+                    throw e;
+                }
+                locked++;
+            }
+        } catch (RuntimeException | Error e) {
+            unlockPath(path, path.size() - locked, mode);
+            throw e;
+        }
+    }
+
+    /**
+     * Acquires the key lock in the specified mode and intention locks on all the key ancestors if all of them
+     * become available within the given waiting time.
+     */
+    public boolean tryLock(ID key, Mode mode, long time, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(time);
+        return tryLock(key, mode, (h, m) -> h.tryLock(m, deadline - System.nanoTime()));
+    }
+
+    /**
+     * Acquires the key lock in the specified mode and intention locks on all the key ancestors with the given
+     * acquisition function. Already acquired locks of the path are released if any of the locks is not acquired.
+     */
+    private <E extends Throwable> boolean tryLock(ID key, Mode mode, HolderAcquirer<E> acquirer) throws E {
+        final List<ID> path = pathTo(key);
+        int locked = 0;
+        try {
+            for (int i = path.size() - 1; i >= 0; i--) {
+                final IntentionLockHolder holder = lockPool.compute(path.get(i), useHolder);
+                boolean acquired = false;
+                try {
+                    acquired = acquirer.acquire(holder, i == 0 ? mode : mode.intention());
+                } finally {
+                    if (!acquired) {
+                        lockPool.computeIfPresent(path.get(i), releaseHolder);
+                    }
+                }
+                if (!acquired) {
+                    break;
+                }
+                locked++;
+            }
+        } finally {
+            if (locked < path.size()) {
+                unlockPath(path, path.size() - locked, mode);
+            }
+        }
+        return locked == path.size();
+    }
+
+    /**
+     * Releases the key lock acquired in the specified mode and intention locks on all the key ancestors.
+     */
+    public void unlock(ID key, Mode mode) {
+        final List<ID> path = pathTo(key);
+        unlockPath(path, 0, mode);
+    }
+
+    /**
+     * Returns the key and its ancestors. The key is the first element of the list and the root is the last one.
+     */
+    protected List<ID> pathTo(ID key) {
+        final List<ID> path = new ArrayList<>();
+        ID id = key;
+        do {
+            if (path.size() == MAX_DEPTH) {
+                throw new IllegalStateException("Too deep hierarchy for key '" + key + "' (cyclic parents?)");
+            }
+            path.add(id);
+            id = parentMapper.apply(id);
+        } while (id != null);
+        return path;
+    }
+
+    /**
+     * Releases locks of the path elements starting from the given index up to the root.
+     */
+    private void unlockPath(List<ID> path, int from, Mode mode) {
+        for (int i = from; i < path.size(); i++) {
+            final ID id = path.get(i);
+            final IntentionLockHolder holder = lockPool.get(id);
+            if (holder == null) {
+                throw new IllegalStateException("Lock '" + id + "' is not acquired");
+            }
+            holder.unlock(i == 0 ? mode : mode.intention());
+            lockPool.computeIfPresent(id, releaseHolder);
+        }
+    }
+
+    /**
+     * Lock modes: intention shared, intention exclusive, shared and exclusive.
+     */
+    public enum Mode {
+        IS,
+        IX,
+        S,
+        X;
+
+        private int compatible;
+
+        static {
+            IS.compatible = 1 << IS.ordinal() | 1 << IX.ordinal() | 1 << S.ordinal();
+            IX.compatible = 1 << IS.ordinal() | 1 << IX.ordinal();
+            S.compatible = 1 << IS.ordinal() | 1 << S.ordinal();
+            X.compatible = 0;
+        }
+
+        public boolean isCompatible(Mode mode) {
+            return (compatible & 1 << mode.ordinal()) != 0;
+        }
+
+        /**
+         * Returns a mode should be acquired on ancestors of a key locked in the mode.
+         */
+        public Mode intention() {
+            return this == IS || this == S ? IS : IX;
+        }
+
+        boolean isIntention() {
+            return this == IS || this == IX;
+        }
+    }
+
+    /**
+     * Way to acquire a lock of a path element.
+     */
+    @FunctionalInterface
+    private interface HolderAcquirer<E extends Throwable> {
+        /**
+         * @return {@code true} if the lock is acquired
+         */
+        boolean acquire(IntentionLockHolder holder, Mode mode) throws E;
+    }
+
+    private class LockWrapper implements Lock {
+        private final ID key;
+        private final Mode mode;
+
+        public LockWrapper(ID key, Mode mode) {
+            this.key = key;
+            this.mode = mode;
+        }
+
+        @Override
+        public void lock() {
+            HierarchicalLockPool.this.lock(key, mode);
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (!HierarchicalLockPool.this.tryLock(key, mode, Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                throw new IllegalStateException("Lock '" + key + "' was not acquired");
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            return HierarchicalLockPool.this.tryLock(key, mode, IntentionLockHolder::tryLock);
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return HierarchicalLockPool.this.tryLock(key, mode, time, unit);
+        }
+
+        @Override
+        public void unlock() {
+            HierarchicalLockPool.this.unlock(key, mode);
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Conditions are not supported by hierarchical locks");
+        }
+    }
+
+    /**
+     * Multi-mode lock of a single key with the pool reference counter.
+     */
+    protected static final class IntentionLockHolder {
+        private static final AtomicIntegerFieldUpdater<IntentionLockHolder> REQUESTED =
+                AtomicIntegerFieldUpdater.newUpdater(IntentionLockHolder.class, "requested");
+
+        private final ReentrantLock sync = new ReentrantLock();
+        private final Condition released = sync.newCondition();
+        private static final Mode[] MODES = Mode.values();
+
+        private final int[] held = new int[MODES.length];
+        private final int[] waiting = new int[MODES.length];
+        /**
+         * Amount of holds of the key by each thread holding it in any mode.
+         */
+        private final Map<Thread, Integer> holders = new HashMap<>();
+        protected volatile int requested;
+
+        public int getHeld(Mode mode) {
+            sync.lock();
+            try {
+                return held[mode.ordinal()];
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        /**
+         * Returns amount of threads waiting for the lock in the mode.
+         */
+        public int getWaiting(Mode mode) {
+            sync.lock();
+            try {
+                return waiting[mode.ordinal()];
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        void lock(Mode mode) {
+            final Thread current = Thread.currentThread();
+            boolean interrupted = false;
+            sync.lock();
+            try {
+                if (!isAvailable(mode, current)) {
+                    waiting[mode.ordinal()]++;
+                    try {
+                        do {
+                            try {
+                                released.await();
+                            } catch (InterruptedException e) {
+                                interrupted = true;
+                            }
+                        } while (!isAvailable(mode, current));
+                    } finally {
+                        stopWaiting(mode);
+                    }
+                }
+                acquired(mode, current);
+            } finally {
+                sync.unlock();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        boolean tryLock(Mode mode) {
+            final Thread current = Thread.currentThread();
+            sync.lock();
+            try {
+                if (!isAvailable(mode, current)) {
+                    return false;
+                }
+                acquired(mode, current);
+                return true;
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        boolean tryLock(Mode mode, long nanos) throws InterruptedException {
+            final Thread current = Thread.currentThread();
+            sync.lockInterruptibly();
+            try {
+                if (!isAvailable(mode, current)) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    waiting[mode.ordinal()]++;
+                    try {
+                        do {
+                            if (nanos <= 0) {
+                                return false;
+                            }
+                            nanos = released.awaitNanos(nanos);
+                        } while (!isAvailable(mode, current));
+                    } finally {
+                        stopWaiting(mode);
+                    }
+                }
+                acquired(mode, current);
+                return true;
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        void unlock(Mode mode) {
+            sync.lock();
+            try {
+                if (held[mode.ordinal()] == 0) {
+                    throw new IllegalMonitorStateException("Lock is not held in " + mode + " mode");
+                }
+                held[mode.ordinal()]--;
+                holders.computeIfPresent(Thread.currentThread(), (t, c) -> c == 1 ? null : c - 1);
+                released.signalAll();
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        /**
+         * Checks if the lock could be granted in the mode. New intention requests also wait for queued incompatible
+         * {@linkplain Mode#S} and {@linkplain Mode#X} requests unless the thread already holds the key.
+         */
+        private boolean isAvailable(Mode mode, Thread current) {
+            for (Mode m : MODES) {
+                if (held[m.ordinal()] > 0 && !mode.isCompatible(m)) {
+                    return false;
+                }
+            }
+            if (mode.isIntention() && !holders.containsKey(current)) {
+                for (Mode m : MODES) {
+                    if (!m.isIntention() && waiting[m.ordinal()] > 0 && !mode.isCompatible(m)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void acquired(Mode mode, Thread current) {
+            held[mode.ordinal()]++;
+            holders.merge(current, 1, Integer::sum);
+        }
+
+        private void stopWaiting(Mode mode) {
+            if (--waiting[mode.ordinal()] == 0 && !mode.isIntention()) {
+                // Intention requests could wait for the request
+                released.signalAll();
+            }
+        }
+
+        void increment() {
+            REQUESTED.incrementAndGet(this);
+        }
+
+        boolean decrement() {
+            return 0 == REQUESTED.decrementAndGet(this);
+        }
+    }
+}
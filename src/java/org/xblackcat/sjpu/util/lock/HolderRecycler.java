@@ -0,0 +1,48 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free free list of unused holders. A thread starts probing slots from a position derived from its id,
+ * so concurrent threads mostly work with different slots. Both operations give up after probing a few slots: a holder
+ * which could not be stored is left to the garbage collector and a new holder is allocated if nothing is found.
+ *
+ * @author xBlackCat
+ */
+final class HolderRecycler<H> {
+    private static final int MAX_PROBES = 8;
+
+    private final AtomicReferenceArray<H> slots;
+    private final int mask;
+
+    HolderRecycler(int capacity) {
+        final int size = StripedLockPool.ceilingPowerOfTwo(capacity);
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    H poll() {
+        int i = start();
+        for (int probes = Math.min(MAX_PROBES, mask + 1); probes > 0; probes--, i = (i + 1) & mask) {
+            final H holder = slots.get(i);
+            if (holder != null && slots.compareAndSet(i, holder, null)) {
+                return holder;
+            }
+        }
+        return null;
+    }
+
+    boolean offer(H holder) {
+        int i = start();
+        for (int probes = Math.min(MAX_PROBES, mask + 1); probes > 0; probes--, i = (i + 1) & mask) {
+            if (slots.get(i) == null && slots.compareAndSet(i, null, holder)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int start() {
+        return StripedLockPool.spread((int) Thread.currentThread().getId()) & mask;
+    }
+}
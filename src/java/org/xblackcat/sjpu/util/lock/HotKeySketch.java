@@ -0,0 +1,141 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.*;
+
+/**
+ * Bounded streaming top-K sketch based on the Space-Saving algorithm. The sketch keeps at most {@code capacity}
+ * counters regardless of the amount of distinct keys: when a new key arrives and all the counters are in use the key
+ * replaces the least frequent one and inherits its count (the inherited value is the maximal overestimation of
+ * the key count). Keys with the real frequency above {@code total / capacity} are guaranteed to be kept by the sketch.
+ * <p>
+ * Besides the frequency the sketch sums wait times of the key. The wait time of a key is counted only since the key got
+ * into the sketch last time.
+ *
+ * @author xBlackCat
+ */
+public class HotKeySketch<ID> {
+    private final Map<ID, Counter<ID>> counters;
+    /**
+     * Min-heap of counters by count.
+     */
+    private final Counter<ID>[] heap;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HotKeySketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity should be positive: " + capacity);
+        }
+        counters = new HashMap<>(capacity * 2);
+        heap = (Counter<ID>[]) new Counter<?>[capacity];
+    }
+
+    public synchronized void offer(ID key, long waitNanos) {
+        Counter<ID> counter = counters.get(key);
+        if (counter == null) {
+            if (size < heap.length) {
+                counter = new Counter<>();
+                counter.index = size;
+                heap[size++] = counter;
+            } else {
+                counter = heap[0];
+                counters.remove(counter.key);
+                counter.error = counter.count;
+                counter.waitNanos = 0;
+            }
+            counter.key = key;
+            counters.put(key, counter);
+        }
+        counter.count++;
+        counter.waitNanos += waitNanos;
+        siftDown(counter.index);
+    }
+
+    /**
+     * Returns up to {@code k} keys with the highest estimated counts in descending order.
+     *
+     * @throws IllegalArgumentException if {@code k} is negative
+     */
+    public synchronized List<HotKey<ID>> top(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Amount of keys should not be negative: " + k);
+        }
+        final List<HotKey<ID>> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final Counter<ID> c = heap[i];
+            result.add(new HotKey<>(c.key, c.count, c.error, c.waitNanos));
+        }
+        result.sort(Comparator.comparingLong(HotKey<ID>::getCount).reversed());
+        return k < result.size() ? new ArrayList<>(result.subList(0, k)) : result;
+    }
+
+    private void siftDown(int i) {
+        final Counter<ID> counter = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (counter.count <= heap[child].count) {
+                break;
+            }
+            heap[i] = heap[child];
+            heap[i].index = i;
+            i = child;
+        }
+        heap[i] = counter;
+        counter.index = i;
+    }
+
+    private static final class Counter<ID> {
+        private ID key;
+        private long count;
+        private long error;
+        private long waitNanos;
+        private int index;
+    }
+
+    /**
+     * Snapshot of a key counter.
+     */
+    public static final class HotKey<ID> {
+        private final ID key;
+        private final long count;
+        private final long error;
+        private final long waitNanos;
+
+        HotKey(ID key, long count, long error, long waitNanos) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.waitNanos = waitNanos;
+        }
+
+        public ID getKey() {
+            return key;
+        }
+
+        /**
+         * Returns estimated count of the key. The real count is in range {@code [count - error, count]}.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "HotKey{key=" + key + ", count=" + count + ", error=" + error + ", waitNanos=" + waitNanos + '}';
+        }
+    }
+}
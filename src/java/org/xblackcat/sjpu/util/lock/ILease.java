@@ -0,0 +1,37 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Handle of a lock acquired for a limited time.
+ *
+ * @author xBlackCat
+ * @see LeaseLockPool
+ */
+public interface ILease extends AutoCloseable {
+    /**
+     * Releases the lock.
+     *
+     * @return {@code false} if the lease is already released or expired
+     */
+    boolean unlock();
+
+    /**
+     * Prolongs the lease to the given time from now.
+     *
+     * @param leaseTime new lease time
+     * @param unit      the time unit of the {@code leaseTime} argument
+     * @return {@code false} if the lease is already released or expired
+     */
+    boolean renew(long leaseTime, TimeUnit unit);
+
+    /**
+     * @return {@code true} if the lock was released automatically because the lease was not renewed in time
+     */
+    boolean isExpired();
+
+    @Override
+    default void close() {
+        unlock();
+    }
+}
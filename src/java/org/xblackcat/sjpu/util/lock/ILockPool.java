@@ -1,5 +1,13 @@
 package org.xblackcat.sjpu.util.lock;
 
+import org.xblackcat.sjpu.util.function.IntSupplierEx;
+import org.xblackcat.sjpu.util.function.LongSupplierEx;
+import org.xblackcat.sjpu.util.function.RunnableEx;
+import org.xblackcat.sjpu.util.function.SupplierEx;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 
 /**
@@ -9,4 +17,157 @@ import java.util.concurrent.locks.Lock;
  */
 public interface ILockPool<ID> {
     Lock getLock(ID key);
+
+    /**
+     * Acquires the lock for the specified key. Implementations could override the method to avoid allocation of
+     * an intermediate {@linkplain Lock} object.
+     *
+     * @param key lock key
+     * @see Lock#lock()
+     */
+    default void lock(ID key) {
+        getLock(key).lock();
+    }
+
+    /**
+     * Acquires the lock for the specified key if it is free within the given waiting time.
+     *
+     * @param key  lock key
+     * @param time the maximum time to wait for the lock
+     * @param unit the time unit of the {@code time} argument
+     * @return {@code true} if the lock was acquired and {@code false} if the waiting time elapsed before the lock was acquired
+     * @see Lock#tryLock(long, TimeUnit)
+     */
+    default boolean tryLock(ID key, long time, TimeUnit unit) throws InterruptedException {
+        return getLock(key).tryLock(time, unit);
+    }
+
+    /**
+     * Releases the lock for the specified key acquired by {@linkplain #lock(Object)} or
+     * {@linkplain #tryLock(Object, long, TimeUnit)} methods. Pool implementations tracking locks held by a thread
+     * reject releasing the lock by a thread which has not acquired it.
+     *
+     * @param key lock key
+     * @see Lock#unlock()
+     */
+    default void unlock(ID key) {
+        getLock(key).unlock();
+    }
+
+    /**
+     * Performs the action while holding the lock for the specified key.
+     *
+     * @param key    lock key
+     * @param action action to perform
+     * @param <R>    the type of the action result
+     * @param <E>    the type of exception could be thrown by the action
+     * @return result of the action
+     */
+    default <R, E extends Throwable> R withLock(ID key, SupplierEx<R, E> action) throws E {
+        lock(key);
+        try {
+            return action.get();
+        } finally {
+            unlock(key);
+        }
+    }
+
+    /**
+     * Performs the action while holding the lock for the specified key.
+     *
+     * @param key    lock key
+     * @param action action to perform
+     * @param <E>    the type of exception could be thrown by the action
+     */
+    default <E extends Throwable> void withLock(ID key, RunnableEx<E> action) throws E {
+        lock(key);
+        try {
+            action.run();
+        } finally {
+            unlock(key);
+        }
+    }
+
+    /**
+     * Performs the {@code int}-valued action while holding the lock for the specified key.
+     *
+     * @see #withLock(Object, SupplierEx)
+     */
+    default <E extends Throwable> int withLockAsInt(ID key, IntSupplierEx<E> action) throws E {
+        lock(key);
+        try {
+            return action.getAsInt();
+        } finally {
+            unlock(key);
+        }
+    }
+
+    /**
+     * Performs the {@code long}-valued action while holding the lock for the specified key.
+     *
+     * @see #withLock(Object, SupplierEx)
+     */
+    default <E extends Throwable> long withLockAsLong(ID key, LongSupplierEx<E> action) throws E {
+        lock(key);
+        try {
+            return action.getAsLong();
+        } finally {
+            unlock(key);
+        }
+    }
+
+    /**
+     * Acquires locks for all the specified keys. Duplicate keys are ignored and the locks are taken in the canonical
+     * order, so concurrent calls with intersecting key sets could not deadlock each other.
+     *
+     * @param keys lock keys
+     * @return handle to release all the acquired locks
+     */
+    default IMultiLock lockAll(Collection<? extends ID> keys) {
+        final List<ID> ordered = LockOrder.sortedDistinct(keys);
+        int locked = 0;
+        try {
+            for (ID key : ordered) {
+                lock(key);
+                locked++;
+            }
+        } catch (RuntimeException | Error e) {
+            LockOrder.unlock(this, ordered, locked);
+            throw e;
+        }
+        return LockOrder.releaseOnce(() -> LockOrder.unlock(this, ordered, ordered.size()));
+    }
+
+    /**
+     * Acquires locks for all the specified keys within the given waiting time. Duplicate keys are ignored and
+     * the locks are taken in the canonical order. If not all the locks could be acquired in time the already taken
+     * ones are released.
+     *
+     * @param keys lock keys
+     * @param time the maximum time to wait for all the locks
+     * @param unit the time unit of the {@code time} argument
+     * @return handle to release all the acquired locks or {@code null} if the waiting time elapsed before all
+     * the locks were acquired
+     */
+    default IMultiLock tryLockAll(Collection<? extends ID> keys, long time, TimeUnit unit) throws InterruptedException {
+        final List<ID> ordered = LockOrder.sortedDistinct(keys);
+        final long deadline = System.nanoTime() + unit.toNanos(time);
+        int locked = 0;
+        try {
+            for (ID key : ordered) {
+                if (!tryLock(key, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                locked++;
+            }
+        } finally {
+            if (locked < ordered.size()) {
+                LockOrder.unlock(this, ordered, locked);
+            }
+        }
+        if (locked < ordered.size()) {
+            return null;
+        }
+        return LockOrder.releaseOnce(() -> LockOrder.unlock(this, ordered, ordered.size()));
+    }
 }
@@ -0,0 +1,20 @@
+package org.xblackcat.sjpu.util.lock;
+
+/**
+ * Handle of locks acquired at once for several keys. Could be used in try-with-resources blocks.
+ *
+ * @author xBlackCat
+ * @see ILockPool#lockAll(java.util.Collection)
+ */
+@FunctionalInterface
+public interface IMultiLock extends AutoCloseable {
+    /**
+     * Releases all the locks held by the handle in reverse order. Subsequent calls have no effect.
+     */
+    void unlock();
+
+    @Override
+    default void close() {
+        unlock();
+    }
+}
@@ -0,0 +1,12 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Pool of read-write locks associated with keys.
+ *
+ * @author xBlackCat
+ */
+public interface IReadWriteLockPool<ID> {
+    ReadWriteLock getReadWriteLock(ID key);
+}
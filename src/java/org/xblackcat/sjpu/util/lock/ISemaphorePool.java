@@ -0,0 +1,48 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of semaphores associated with keys: limits amount of concurrent operations per key.
+ *
+ * @author xBlackCat
+ */
+public interface ISemaphorePool<ID> {
+    /**
+     * Acquires the given number of permits for the key, blocking until all are available.
+     *
+     * @see Semaphore#acquire(int)
+     */
+    void acquire(ID key, int permits) throws InterruptedException;
+
+    /**
+     * Acquires the given number of permits for the key if all become available within the given waiting time.
+     *
+     * @return {@code true} if all permits were acquired and {@code false} if the waiting time elapsed before all
+     * permits were acquired
+     * @see Semaphore#tryAcquire(int, long, TimeUnit)
+     */
+    boolean tryAcquire(ID key, int permits, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Releases the given number of permits previously acquired for the key.
+     *
+     * @throws IllegalArgumentException if {@code permits} is not positive
+     * @throws IllegalStateException    if less than {@code permits} permits are acquired for the key
+     * @see Semaphore#release(int)
+     */
+    void release(ID key, int permits);
+
+    default void acquire(ID key) throws InterruptedException {
+        acquire(key, 1);
+    }
+
+    default boolean tryAcquire(ID key, long timeout, TimeUnit unit) throws InterruptedException {
+        return tryAcquire(key, 1, timeout, unit);
+    }
+
+    default void release(ID key) {
+        release(key, 1);
+    }
+}
@@ -0,0 +1,42 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Upgradable read lock. The lock is shared with plain readers but only one thread at a time could hold it, so
+ * the holder could atomically upgrade it to the exclusive write lock without releasing the read access. Writers are
+ * not allowed while the upgradable lock is held. Releasing an upgraded lock releases the write access too.
+ *
+ * @author xBlackCat
+ */
+public interface IUpgradableLock extends Lock {
+    /**
+     * Waits until all the plain readers are gone and converts the lock to the write lock. New readers are not
+     * allowed while the upgrade is in progress.
+     *
+     * @throws IllegalMonitorStateException if the current thread does not hold the upgradable lock
+     */
+    void upgrade();
+
+    /**
+     * Converts the lock to the write lock if all the plain readers are gone within the given waiting time.
+     *
+     * @return {@code true} if the lock is upgraded and {@code false} if the waiting time elapsed before the readers
+     * were gone. The lock is kept in the upgradable read mode in the latter case.
+     * @throws IllegalMonitorStateException if the current thread does not hold the upgradable lock
+     */
+    boolean tryUpgrade(long time, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Converts the upgraded lock back to the upgradable read mode and lets plain readers in.
+     *
+     * @throws IllegalMonitorStateException if the lock is not upgraded by the current thread
+     */
+    void downgrade();
+
+    /**
+     * Returns {@code true} if the lock is upgraded to the write lock.
+     */
+    boolean isUpgraded();
+}
@@ -0,0 +1,79 @@
+package org.xblackcat.sjpu.util.lock;
+
+/**
+ * Defines how a thread waits for a busy {@linkplain SpinLock}.
+ *
+ * @author xBlackCat
+ */
+public interface IWaitStrategy {
+    /**
+     * Called after a failed attempt to acquire the lock. The method could spin, yield or sleep a bit before
+     * the next attempt.
+     *
+     * @param attempt           number of the failed attempt (starts from zero)
+     * @param expectedWaitNanos expected time before the lock is released or {@code -1} if unknown. The value is
+     *                          provided only for {@linkplain #isTimed() timed} strategies.
+     * @return {@code true} if the thread should be parked until the lock is released and {@code false} to retry
+     * the acquisition right away
+     */
+    boolean idle(int attempt, long expectedWaitNanos);
+
+    /**
+     * Returns {@code true} if the strategy needs expected wait times. Hold times of the lock are measured only for
+     * timed strategies.
+     */
+    default boolean isTimed() {
+        return false;
+    }
+
+    /**
+     * Retries the acquisition in a tight loop. Suitable only if there are fewer contending threads than cores.
+     */
+    static IWaitStrategy busySpin() {
+        return (attempt, expectedWaitNanos) -> false;
+    }
+
+    /**
+     * Spins the specified amount of attempts and yields the processor after that.
+     */
+    static IWaitStrategy spinThenYield(int spins) {
+        return new WaitStrategies.SpinThenYield(spins);
+    }
+
+    /**
+     * Sleeps between attempts doubling the sleep time after every failed attempt.
+     *
+     * @param minNanos the first sleep time
+     * @param maxNanos maximal sleep time
+     */
+    static IWaitStrategy backoff(long minNanos, long maxNanos) {
+        return new WaitStrategies.Backoff(minNanos, maxNanos);
+    }
+
+    /**
+     * Parks the thread until the lock is released. Behaves like an unfair {@linkplain java.util.concurrent.locks.ReentrantLock}.
+     */
+    static IWaitStrategy park() {
+        return (attempt, expectedWaitNanos) -> true;
+    }
+
+    /**
+     * Learns typical hold time of each lock and spins only if the lock is expected to be released within
+     * the threshold. Otherwise the thread is parked.
+     *
+     * @param spinThresholdNanos maximal expected wait time to spin for
+     * @param maxSpins           maximal amount of spins before the thread is parked anyway
+     */
+    static IWaitStrategy adaptive(long spinThresholdNanos, int maxSpins) {
+        return new WaitStrategies.Adaptive(spinThresholdNanos, maxSpins);
+    }
+
+    /**
+     * Adaptive strategy with spin threshold of 10 microseconds.
+     *
+     * @see #adaptive(long, int)
+     */
+    static IWaitStrategy adaptive() {
+        return adaptive(10_000, 1000);
+    }
+}
@@ -0,0 +1,202 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.xblackcat.sjpu.util.thread.TimerWheel;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BiFunction;
+
+/**
+ * Lock pool with auto-expiring locks. Every acquired lock is granted for a lease time: if the owner does not release
+ * or renew the lease in time, the lock is released automatically, so a stalled worker or a leaked lock could block
+ * the key no longer than for the lease time. All the leases are served by a single shared {@linkplain TimerWheel}.
+ * <p>
+ * Leased locks are not reentrant and are not bound to a thread: a lease could be released or renewed from any thread.
+ *
+ * @author xBlackCat
+ */
+public class LeaseLockPool<ID> {
+    protected final ConcurrentMap<ID, LeaseHolder> lockPool = new ConcurrentHashMap<>();
+    protected final TimerWheel timer;
+
+    private final BiFunction<ID, LeaseHolder, LeaseHolder> useHolder = (id, h) -> {
+        if (h == null) {
+            h = new LeaseHolder();
+        }
+        h.increment();
+        return h;
+    };
+    private final BiFunction<ID, LeaseHolder, LeaseHolder> releaseHolder = (id, h) -> h.decrement() ? null : h;
+
+    public LeaseLockPool() {
+        this(TimerWheel.getDefault());
+    }
+
+    public LeaseLockPool(TimerWheel timer) {
+        this.timer = timer;
+    }
+
+    /**
+     * Acquires the lock for the specified key for the given lease time.
+     *
+     * @param key       lock key
+     * @param leaseTime time after which the lock is released automatically
+     * @param unit      the time unit of the {@code leaseTime} argument
+     * @return lease of the acquired lock
+     */
+    public ILease lock(ID key, long leaseTime, TimeUnit unit) {
+        final LeaseHolder holder = lockPool.compute(key, useHolder);
+        try {
+            holder.permit.acquireUninterruptibly();
+        } catch (RuntimeException | Error e) {
+            lockPool.computeIfPresent(key, releaseHolder);
+            throw e;
+        }
+        return lease(key, holder, leaseTime, unit);
+    }
+
+    /**
+     * Acquires the lock for the specified key for the given lease time if it is free within the given waiting time.
+     *
+     * @param key       lock key
+     * @param waitTime  the maximum time to wait for the lock
+     * @param leaseTime time after which the lock is released automatically
+     * @param unit      the time unit of the {@code waitTime} and {@code leaseTime} arguments
+     * @return lease of the acquired lock or {@code null} if the waiting time elapsed before the lock was acquired
+     */
+    public ILease tryLock(ID key, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        final LeaseHolder holder = lockPool.compute(key, useHolder);
+        boolean locked = false;
+        try {
+            locked = holder.permit.tryAcquire(waitTime, unit);
+        } finally {
+            if (!locked) {
+                lockPool.computeIfPresent(key, releaseHolder);
+            }
+        }
+        return locked ? lease(key, holder, leaseTime, unit) : null;
+    }
+
+    /**
+     * Acquires the lock for the specified key for the given lease time only if it is free at the time of invocation.
+     *
+     * @return lease of the acquired lock or {@code null} if the lock is held by another lease
+     */
+    public ILease tryLock(ID key, long leaseTime, TimeUnit unit) {
+        final LeaseHolder holder = lockPool.compute(key, useHolder);
+        boolean locked = false;
+        try {
+            locked = holder.permit.tryAcquire();
+        } finally {
+            if (!locked) {
+                lockPool.computeIfPresent(key, releaseHolder);
+            }
+        }
+        return locked ? lease(key, holder, leaseTime, unit) : null;
+    }
+
+    public boolean isLocked(ID key) {
+        final LeaseHolder holder = lockPool.get(key);
+        return holder != null && holder.permit.availablePermits() == 0;
+    }
+
+    /**
+     * Creates a lease for the acquired holder. The lock is released back if the lease could not be scheduled (e.g.
+     * the timer wheel is stopped).
+     */
+    private Lease lease(ID key, LeaseHolder holder, long leaseTime, TimeUnit unit) {
+        try {
+            return new Lease(key, holder, leaseTime, unit);
+        } catch (RuntimeException | Error e) {
+            lockPool.computeIfPresent(key, releaseHolder);
+            holder.permit.release();
+            throw e;
+        }
+    }
+
+    private final class Lease implements ILease {
+        private static final int ACTIVE = 0;
+        private static final int RELEASED = 1;
+        private static final int EXPIRED = 2;
+
+        private final ID key;
+        private final LeaseHolder holder;
+        private final TimerWheel.Timeout timeout;
+        volatile int state = ACTIVE;
+
+        private Lease(ID key, LeaseHolder holder, long leaseTime, TimeUnit unit) {
+            this.key = key;
+            this.holder = holder;
+            this.timeout = timer.schedule(this::expire, leaseTime, unit);
+        }
+
+        @Override
+        public boolean unlock() {
+            if (!STATE.compareAndSet(this, ACTIVE, RELEASED)) {
+                return false;
+            }
+            timeout.cancel();
+            release();
+            return true;
+        }
+
+        @Override
+        public boolean renew(long leaseTime, TimeUnit unit) {
+            return state == ACTIVE && timeout.reschedule(leaseTime, unit);
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        private void expire() {
+            if (STATE.compareAndSet(this, ACTIVE, EXPIRED)) {
+                release();
+            }
+        }
+
+        private void release() {
+            // The semaphore is not bound to a thread, so an evicted holder could be released safely. Releasing
+            // the reference first makes the reference counter consistent for the next lease owner.
+            lockPool.computeIfPresent(key, releaseHolder);
+            holder.permit.release();
+        }
+
+        @Override
+        public String toString() {
+            return "Lease{key=" + key + ", state=" + state + '}';
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<LeaseLockPool.Lease> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(LeaseLockPool.Lease.class, "state");
+
+    /**
+     * Lease holder: a single-permit semaphore is used as an owner-less lock, so the lease could be released by
+     * the timer thread.
+     */
+    protected static final class LeaseHolder {
+        private static final AtomicIntegerFieldUpdater<LeaseHolder> REQUESTED =
+                AtomicIntegerFieldUpdater.newUpdater(LeaseHolder.class, "requested");
+
+        protected final Semaphore permit = new Semaphore(1);
+        protected volatile int requested;
+
+        public int getRequested() {
+            return requested;
+        }
+
+        public void increment() {
+            REQUESTED.incrementAndGet(this);
+        }
+
+        public boolean decrement() {
+            return 0 == REQUESTED.decrementAndGet(this);
+        }
+    }
+}
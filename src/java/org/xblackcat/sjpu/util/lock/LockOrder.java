@@ -0,0 +1,89 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Canonical order of keys for acquiring several locks at once without deadlocks. Keys are ordered by class name first.
+ * Keys of the same class implementing {@linkplain Comparable} are ordered naturally, others (and naturally equal but
+ * distinct keys) are ordered by hash code and then by string representation. The order depends on key values only, so equal keys are ordered the same way
+ * in all threads. Distinct keys which could not be told apart by the order are rejected.
+ *
+ * @author xBlackCat
+ */
+final class LockOrder {
+    private LockOrder() {
+    }
+
+    /**
+     * Returns keys without duplicates sorted in the canonical order.
+     */
+    static <ID> List<ID> sortedDistinct(Collection<? extends ID> keys) {
+        final List<ID> ordered = new ArrayList<>(keys instanceof Set ? keys : new HashSet<>(keys));
+        ordered.sort(LockOrder::compare);
+        return ordered;
+    }
+
+    @SuppressWarnings("unchecked")
+    static int compare(Object a, Object b) {
+        if (a == b) {
+            return 0;
+        }
+        if (a == null) {
+            return -1;
+        }
+        if (b == null) {
+            return 1;
+        }
+        final Class<?> aClass = a.getClass();
+        final Class<?> bClass = b.getClass();
+        if (aClass != bClass) {
+            final int c = aClass.getName().compareTo(bClass.getName());
+            if (c != 0) {
+                return c;
+            }
+            // Same class loaded by different class loaders: class objects are the same for all threads
+            return Integer.compare(System.identityHashCode(aClass), System.identityHashCode(bClass));
+        }
+        if (a instanceof Comparable) {
+            final int c = ((Comparable<Object>) a).compareTo(b);
+            if (c != 0) {
+                return c;
+            }
+            // Natural order could be inconsistent with equals (e.g. BigDecimal 1.0 and 1.00): tie distinct keys
+        }
+        int c = Integer.compare(a.hashCode(), b.hashCode());
+        if (c != 0 || a.equals(b)) {
+            return c;
+        }
+        c = String.valueOf(a).compareTo(String.valueOf(b));
+        if (c != 0) {
+            return c;
+        }
+        throw new IllegalArgumentException(
+                "Keys '" + a + "' and '" + b + "' could not be ordered: keys of " + aClass.getName() +
+                        " class should be comparable or have distinct hash codes"
+        );
+    }
+
+    /**
+     * Releases first {@code amount} locks of the ordered keys in reverse order.
+     */
+    static <ID> void unlock(ILockPool<ID> pool, List<ID> ordered, int amount) {
+        while (amount-- > 0) {
+            pool.unlock(ordered.get(amount));
+        }
+    }
+
+    /**
+     * Returns a handle which performs the release action only once.
+     */
+    static IMultiLock releaseOnce(Runnable release) {
+        final AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+        };
+    }
+}
@@ -1,6 +1,9 @@
 package org.xblackcat.sjpu.util.lock;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -19,6 +22,9 @@ public class LockPool<ID> implements ILockPool<ID> {
     protected final Function<ID, Lock> lockProvider;
     protected final Lock poolLock = new ReentrantLock();
     protected final Map<ID, LockHolder> lockPool = new HashMap<>();
+    private final ThreadLocal<HeldLocks<LockHolder>> heldLocks = ThreadLocal.withInitial(HeldLocks::new);
+    private final Function<ID, LockHolder> holderFactory;
+    protected final LockPoolMetrics<ID> metrics;
 
     public LockPool() {
         this((Supplier<Lock>) ReentrantLock::new);
@@ -29,7 +35,25 @@ public class LockPool<ID> implements ILockPool<ID> {
     }
 
     public LockPool(Function<ID, Lock> lockProvider) {
+        this(lockProvider, null);
+    }
+
+    /**
+     * @param lockProvider lock factory
+     * @param metrics      contention statistics collector or {@code null} to disable the instrumentation
+     */
+    public LockPool(Supplier<Lock> lockProvider, LockPoolMetrics<ID> metrics) {
+        this(id -> lockProvider.get(), metrics);
+    }
+
+    /**
+     * @param lockProvider lock factory
+     * @param metrics      contention statistics collector or {@code null} to disable the instrumentation
+     */
+    public LockPool(Function<ID, Lock> lockProvider, LockPoolMetrics<ID> metrics) {
         this.lockProvider = lockProvider;
+        this.metrics = metrics;
+        holderFactory = id -> new LockHolder(lockProvider.apply(id));
     }
 
     @Override
@@ -37,6 +61,396 @@ public class LockPool<ID> implements ILockPool<ID> {
         return new LockWrapper(key);
     }
 
+    /**
+     * Returns contention statistics of the pool or {@code null} if the instrumentation is disabled.
+     */
+    public LockPoolMetrics<ID> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns up to {@code k} most contended keys. The list is empty if hot keys detection is disabled.
+     *
+     * @see LockPoolMetrics#LockPoolMetrics(int)
+     */
+    public List<HotKeySketch.HotKey<ID>> topContendedKeys(int k) {
+        return metrics == null ? Collections.emptyList() : metrics.topContendedKeys(k);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The acquired holder is remembered by the current thread, so nested acquisitions of the key by the thread
+     * do not touch the pool and the lock is released without looking up the holder again.
+     */
+    @Override
+    public void lock(ID key) {
+        final HeldLocks<LockHolder> held = heldLocks.get();
+        final int idx = held.indexOf(key);
+        if (idx >= 0) {
+            // Nested acquisition: the holder is already referenced by the current thread
+            acquire(key, held.holderAt(idx));
+            held.incrementAt(idx);
+            return;
+        }
+
+        LockHolder lockHolder = useLockFromPool(key);
+        try {
+            acquire(key, lockHolder);
+        } catch (RuntimeException | Error e) {
+            releaseLockFromPool(key, lockHolder);
+            throw e;
+        }
+        held.push(key, lockHolder);
+    }
+
+    @Override
+    public boolean tryLock(ID key, long time, TimeUnit unit) throws InterruptedException {
+        final long nanos = unit.toNanos(time);
+        final HeldLocks<LockHolder> held = heldLocks.get();
+        final int idx = held.indexOf(key);
+        if (idx >= 0) {
+            if (!tryAcquire(key, held.holderAt(idx), nanos)) {
+                return false;
+            }
+            held.incrementAt(idx);
+            return true;
+        }
+
+        LockHolder lockHolder = useLockFromPool(key);
+        boolean locked = false;
+        try {
+            locked = tryAcquire(key, lockHolder, nanos);
+        } finally {
+            if (!locked) {
+                releaseLockFromPool(key, lockHolder);
+            }
+        }
+        if (locked) {
+            held.push(key, lockHolder);
+        }
+        return locked;
+    }
+
+    @Override
+    public void unlock(ID key) {
+        final HeldLocks<LockHolder> held = heldLocks.get();
+        final int idx = held.indexOf(key);
+        if (idx < 0) {
+            // The holder could be still used by the owner thread, so it should not be released by a foreign one
+            throw new IllegalStateException("Lock '" + key + "' is not acquired by the current thread");
+        }
+
+        final LockHolder lockHolder = held.holderAt(idx);
+        release(lockHolder);
+        if (held.decrementAt(idx) == 0) {
+            releaseLockFromPool(key, lockHolder);
+        }
+    }
+
+    private void lockInterruptibly(ID key) throws InterruptedException {
+        final HeldLocks<LockHolder> held = heldLocks.get();
+        final int idx = held.indexOf(key);
+        if (idx >= 0) {
+            acquireInterruptibly(key, held.holderAt(idx));
+            held.incrementAt(idx);
+            return;
+        }
+
+        LockHolder lockHolder = useLockFromPool(key);
+        boolean locked = false;
+        try {
+            acquireInterruptibly(key, lockHolder);
+            locked = true;
+        } finally {
+            if (!locked) {
+                releaseLockFromPool(key, lockHolder);
+            }
+        }
+        held.push(key, lockHolder);
+    }
+
+    private boolean tryLock(ID key) {
+        final HeldLocks<LockHolder> held = heldLocks.get();
+        final int idx = held.indexOf(key);
+        if (idx >= 0) {
+            if (!tryAcquire(held.holderAt(idx))) {
+                return false;
+            }
+            held.incrementAt(idx);
+            return true;
+        }
+
+        LockHolder lockHolder = useLockFromPool(key);
+        boolean locked = false;
+        try {
+            locked = tryAcquire(lockHolder);
+        } finally {
+            if (!locked) {
+                releaseLockFromPool(key, lockHolder);
+            }
+        }
+        if (locked) {
+            held.push(key, lockHolder);
+        }
+        return locked;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Holders for all the keys are taken from the pool during a single pass under the pool lock.
+     */
+    @Override
+    public IMultiLock lockAll(Collection<? extends ID> keys) {
+        final List<ID> ordered = LockOrder.sortedDistinct(keys);
+        final LockHolder[] holders = useLocksFromPool(ordered);
+        int locked = 0;
+        try {
+            for (LockHolder lockHolder : holders) {
+                acquire(ordered.get(locked), lockHolder);
+                locked++;
+            }
+        } catch (RuntimeException | Error e) {
+            unlockAll(holders, locked);
+            releaseLocksFromPool(ordered, holders);
+            throw e;
+        }
+        return LockOrder.releaseOnce(new MultiUnlock(ordered, holders));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Holders for all the keys are taken from the pool during a single pass under the pool lock.
+     */
+    @Override
+    public IMultiLock tryLockAll(Collection<? extends ID> keys, long time, TimeUnit unit) throws InterruptedException {
+        final List<ID> ordered = LockOrder.sortedDistinct(keys);
+        final LockHolder[] holders = useLocksFromPool(ordered);
+        final long deadline = System.nanoTime() + unit.toNanos(time);
+        int locked = 0;
+        try {
+            for (LockHolder lockHolder : holders) {
+                if (!tryAcquire(ordered.get(locked), lockHolder, deadline - System.nanoTime())) {
+                    break;
+                }
+                locked++;
+            }
+        } finally {
+            if (locked < holders.length) {
+                unlockAll(holders, locked);
+                releaseLocksFromPool(ordered, holders);
+            }
+        }
+        if (locked < holders.length) {
+            return null;
+        }
+        return LockOrder.releaseOnce(new MultiUnlock(ordered, holders));
+    }
+
+    protected LockHolder getLockFromPool(ID key) {
+        poolLock.lock();
+        try {
+            final LockHolder lockHolder = lockPool.get(key);
+            if (lockHolder == null) {
+                throw new IllegalStateException("Lock '" + key + "' is not acquired");
+            }
+            return lockHolder;
+        } finally {
+            poolLock.unlock();
+        }
+    }
+
+    protected LockHolder useLockFromPool(ID key) {
+        poolLock.lock();
+        try {
+            final LockHolder lockHolder = lockPool.computeIfAbsent(key, holderFactory);
+            lockHolder.increment();
+            if (metrics != null) {
+                metrics.holdersChanged(lockPool.size());
+            }
+            return lockHolder;
+        } finally {
+            poolLock.unlock();
+        }
+    }
+
+    protected void releaseLockFromPool(ID key, LockHolder lockHolder) {
+        poolLock.lock();
+        try {
+            if (lockHolder.decrement()) {
+                if (lockPool.remove(key) != lockHolder) {
+                    throw new IllegalStateException("Lock '" + key + "' was removed lately");
+                }
+                if (metrics != null) {
+                    metrics.holdersChanged(lockPool.size());
+                }
+            }
+        } finally {
+            poolLock.unlock();
+        }
+    }
+
+    protected LockHolder[] useLocksFromPool(List<ID> keys) {
+        final LockHolder[] holders = new LockHolder[keys.size()];
+        poolLock.lock();
+        try {
+            int i = 0;
+            for (ID key : keys) {
+                final LockHolder lockHolder = lockPool.computeIfAbsent(key, holderFactory);
+                lockHolder.increment();
+                holders[i++] = lockHolder;
+            }
+            if (metrics != null) {
+                metrics.holdersChanged(lockPool.size());
+            }
+        } finally {
+            poolLock.unlock();
+        }
+        return holders;
+    }
+
+    protected void releaseLocksFromPool(List<ID> keys, LockHolder[] holders) {
+        poolLock.lock();
+        try {
+            int i = 0;
+            for (ID key : keys) {
+                final LockHolder lockHolder = holders[i++];
+                if (lockHolder.decrement()) {
+                    if (lockPool.remove(key) != lockHolder) {
+                        throw new IllegalStateException("Lock '" + key + "' was removed lately");
+                    }
+                }
+            }
+            if (metrics != null) {
+                metrics.holdersChanged(lockPool.size());
+            }
+        } finally {
+            poolLock.unlock();
+        }
+    }
+
+    /**
+     * Acquires the holder lock. If the instrumentation is enabled the lock is tried without waiting first
+     * to distinguish contended acquisitions. Note that the probe barges in on a fair lock the same way as
+     * {@linkplain Lock#tryLock()} does.
+     */
+    private void acquire(ID key, LockHolder lockHolder) {
+        final Lock lock = lockHolder.getLock();
+        if (metrics == null) {
+            lock.lock();
+            return;
+        }
+
+        if (lock.tryLock()) {
+            metrics.acquired();
+        } else {
+            final long start = System.nanoTime();
+            lock.lock();
+            metrics.acquired(key, System.nanoTime() - start);
+        }
+        lockHolder.acquired();
+    }
+
+    private void acquireInterruptibly(ID key, LockHolder lockHolder) throws InterruptedException {
+        final Lock lock = lockHolder.getLock();
+        if (metrics == null) {
+            lock.lockInterruptibly();
+            return;
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (lock.tryLock()) {
+            metrics.acquired();
+        } else {
+            final long start = System.nanoTime();
+            lock.lockInterruptibly();
+            metrics.acquired(key, System.nanoTime() - start);
+        }
+        lockHolder.acquired();
+    }
+
+    private boolean tryAcquire(LockHolder lockHolder) {
+        final Lock lock = lockHolder.getLock();
+        if (!lock.tryLock()) {
+            return false;
+        }
+        if (metrics != null) {
+            metrics.acquired();
+            lockHolder.acquired();
+        }
+        return true;
+    }
+
+    private boolean tryAcquire(ID key, LockHolder lockHolder, long nanos) throws InterruptedException {
+        final Lock lock = lockHolder.getLock();
+        if (metrics == null) {
+            return lock.tryLock(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        if (lock.tryLock()) {
+            metrics.acquired();
+        } else {
+            final long start = System.nanoTime();
+            if (nanos <= 0 || !lock.tryLock(nanos, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+            metrics.acquired(key, System.nanoTime() - start);
+        }
+        lockHolder.acquired();
+        return true;
+    }
+
+    private void release(LockHolder lockHolder) {
+        final Lock lock = lockHolder.getLock();
+        if (metrics == null) {
+            lock.unlock();
+            return;
+        }
+
+        // Holder fields should be read before the lock is passed to another thread
+        final long heldNanos = System.nanoTime() - lockHolder.lockedAt;
+        final boolean outermost = lockHolder.released();
+        try {
+            lock.unlock();
+        } catch (RuntimeException | Error e) {
+            // The lock is not held by the current thread
+            lockHolder.holds++;
+            throw e;
+        }
+        if (outermost) {
+            metrics.released(heldNanos);
+        }
+    }
+
+    private void unlockAll(LockHolder[] holders, int amount) {
+        while (amount-- > 0) {
+            release(holders[amount]);
+        }
+    }
+
+    private class MultiUnlock implements Runnable {
+        private final List<ID> keys;
+        private final LockHolder[] holders;
+
+        public MultiUnlock(List<ID> keys, LockHolder[] holders) {
+            this.keys = keys;
+            this.holders = holders;
+        }
+
+        @Override
+        public void run() {
+            unlockAll(holders, holders.length);
+            releaseLocksFromPool(keys, holders);
+        }
+    }
+
     private class LockWrapper implements Lock {
         private final ID key;
 
@@ -46,71 +460,43 @@ public class LockPool<ID> implements ILockPool<ID> {
 
         @Override
         public void lock() {
-            LockHolder lockHolder = useLockFromPool();
-            lockHolder.getLock().lock();
+            LockPool.this.lock(key);
         }
 
         @Override
         public void lockInterruptibly() throws InterruptedException {
-            LockHolder lockHolder = useLockFromPool();
-            lockHolder.getLock().lockInterruptibly();
+            LockPool.this.lockInterruptibly(key);
         }
 
         @Override
         public boolean tryLock() {
-            LockHolder lockHolder = useLockFromPool();
-            return lockHolder.getLock().tryLock();
+            return LockPool.this.tryLock(key);
         }
 
         @Override
         public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
-            LockHolder lockHolder = useLockFromPool();
-            return lockHolder.getLock().tryLock(time, unit);
+            return LockPool.this.tryLock(key, time, unit);
         }
 
         @Override
         public void unlock() {
-            LockHolder lockHolder = getLockFromPool();
-
-            lockHolder.getLock().unlock();
-            if (lockHolder.decrement()) {
-                removeLockFromPool();
-            }
+            LockPool.this.unlock(key);
         }
 
         @Override
         public Condition newCondition() {
-            LockHolder lockHolder = getLockFromPool();
-            return lockHolder.getLock().newCondition();
-        }
-
-        private LockHolder getLockFromPool() {
-            poolLock.lock();
-            try {
-                return lockPool.computeIfAbsent(key, id -> new LockHolder(lockProvider.apply(id)));
-            } finally {
-                poolLock.unlock();
-            }
-        }
-
-        private LockHolder useLockFromPool() {
-            LockHolder lockHolder = getLockFromPool();
-
-            lockHolder.increment();
-            return lockHolder;
-        }
-
-        private void removeLockFromPool() {
+            // The condition could be created before the lock is acquired, so the holder is created if needed
             poolLock.lock();
             try {
-                if (lockPool.remove(key) == null) {
-                    throw new IllegalStateException("Lock '" + key + "' was removed lately");
+                final LockHolder lockHolder = lockPool.computeIfAbsent(key, holderFactory);
+                if (metrics != null) {
+                    metrics.holdersChanged(lockPool.size());
                 }
+                return lockHolder.getLock().newCondition();
             } finally {
                 poolLock.unlock();
             }
         }
-
     }
 
     /**
@@ -121,6 +507,17 @@ public class LockPool<ID> implements ILockPool<ID> {
     protected static final class LockHolder {
         protected final AtomicInteger requested = new AtomicInteger(0);
         protected final Lock lock;
+        /**
+         * Time of the outermost lock acquisition. Accessed only by the lock owner and only if the instrumentation is enabled.
+         */
+        protected long lockedAt;
+        /**
+         * Amount of nested acquisitions of the lock by its owner. Accessed only by the lock owner and only if
+         * the instrumentation is enabled. The counter does not depend on the lock implementation, so holds of any
+         * exclusive lock are measured from the outermost acquisition to the outermost release. Hold times of shared
+         * locks are not reliable.
+         */
+        protected int holds;
 
         LockHolder(Lock lock) {
             this.lock = lock;
@@ -137,5 +534,18 @@ public class LockPool<ID> implements ILockPool<ID> {
         public boolean decrement() {
             return 0 == requested.decrementAndGet();
         }
+
+        void acquired() {
+            if (holds++ == 0) {
+                lockedAt = System.nanoTime();
+            }
+        }
+
+        /**
+         * @return {@code true} if the outermost acquisition is released
+         */
+        boolean released() {
+            return --holds == 0;
+        }
     }
 }
@@ -0,0 +1,134 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contention statistics of a lock pool. All the counters are striped, so the instrumentation could be kept enabled
+ * under high load. Hold times are collected into a histogram with power-of-two buckets: bucket {@code i} counts
+ * locks held for {@code [2^i, 2^(i+1))} nanoseconds (the last bucket counts all the longer holds).
+ * <p>
+ * Optionally contended acquisitions are fed into a fixed-size {@linkplain HotKeySketch heavy hitters sketch} to find
+ * the most contended keys.
+ *
+ * @author xBlackCat
+ */
+public class LockPoolMetrics<ID> {
+    public static final int HISTOGRAM_BUCKETS = 40;
+
+    private final LongAdder acquires = new LongAdder();
+    private final LongAdder contendedAcquires = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder[] holdTimeHistogram = new LongAdder[HISTOGRAM_BUCKETS];
+    private final LongAccumulator peakHolders = new LongAccumulator(Long::max, 0);
+    private final HotKeySketch<ID> hotKeys;
+    private volatile int liveHolders;
+
+    public LockPoolMetrics() {
+        this(0);
+    }
+
+    /**
+     * @param hotKeysCapacity amount of counters of the contended keys sketch. Zero value disables hot keys detection.
+     */
+    public LockPoolMetrics(int hotKeysCapacity) {
+        hotKeys = hotKeysCapacity > 0 ? new HotKeySketch<>(hotKeysCapacity) : null;
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            holdTimeHistogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns total amount of acquired locks.
+     */
+    public long getAcquires() {
+        return acquires.sum();
+    }
+
+    /**
+     * Returns amount of locks which were not available immediately.
+     */
+    public long getContendedAcquires() {
+        return contendedAcquires.sum();
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    /**
+     * Returns a snapshot of the hold time histogram.
+     */
+    public long[] getHoldTimeHistogram() {
+        final long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            histogram[i] = holdTimeHistogram[i].sum();
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns amount of holders currently registered in the pool.
+     */
+    public int getLiveHolders() {
+        return liveHolders;
+    }
+
+    public long getPeakHolders() {
+        return peakHolders.get();
+    }
+
+    /**
+     * Returns up to {@code k} most contended keys in descending order of their estimated contended acquisitions count.
+     * Returns an empty list if hot keys detection is disabled.
+     */
+    public List<HotKeySketch.HotKey<ID>> topContendedKeys(int k) {
+        return hotKeys == null ? Collections.emptyList() : hotKeys.top(k);
+    }
+
+    void acquired() {
+        acquires.increment();
+    }
+
+    void acquired(ID key, long waitNanos) {
+        acquires.increment();
+        contendedAcquires.increment();
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulate(waitNanos);
+        if (hotKeys != null) {
+            hotKeys.offer(key, waitNanos);
+        }
+    }
+
+    void released(long holdNanos) {
+        final int bucket = holdNanos <= 0 ? 0 : 63 - Long.numberOfLeadingZeros(holdNanos);
+        holdTimeHistogram[Math.min(bucket, HISTOGRAM_BUCKETS - 1)].increment();
+    }
+
+    /**
+     * Should be called under the pool lock every time the amount of holders is changed.
+     */
+    void holdersChanged(int live) {
+        liveHolders = live;
+        peakHolders.accumulate(live);
+    }
+
+    @Override
+    public String toString() {
+        return "LockPoolMetrics{" +
+                "acquires=" + getAcquires() +
+                ", contendedAcquires=" + getContendedAcquires() +
+                ", totalWaitNanos=" + getTotalWaitNanos() +
+                ", maxWaitNanos=" + getMaxWaitNanos() +
+                ", liveHolders=" + getLiveHolders() +
+                ", peakHolders=" + getPeakHolders() +
+                '}';
+    }
+}
@@ -0,0 +1,105 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Lock pool for {@code long} keys. Keys are not boxed: they are stored directly in the segment tables of
+ * the pool (see {@linkplain SegmentedLockPool}), so a lock/unlock cycle does not produce garbage.
+ *
+ * @author xBlackCat
+ */
+public class LongLockPool extends SegmentedLockPool {
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    public LongLockPool() {
+        this(ReentrantLock::new);
+    }
+
+    public LongLockPool(Supplier<Lock> lockProvider) {
+        this(DEFAULT_SEGMENTS, lockProvider);
+    }
+
+    /**
+     * @param segments     amount of independent segments. The value is rounded up to the nearest power of two.
+     * @param lockProvider lock factory
+     */
+    public LongLockPool(int segments, Supplier<Lock> lockProvider) {
+        super(segments, lockProvider, LongSegment::new);
+    }
+
+    public void lock(long key) {
+        acquire(null, key, 0, hash(key));
+    }
+
+    public void lockInterruptibly(long key) throws InterruptedException {
+        acquireInterruptibly(null, key, 0, hash(key));
+    }
+
+    public boolean tryLock(long key) {
+        return tryAcquire(null, key, 0, hash(key));
+    }
+
+    public boolean tryLock(long key, long time, TimeUnit unit) throws InterruptedException {
+        return tryAcquire(null, key, 0, hash(key), time, unit);
+    }
+
+    public void unlock(long key) {
+        release(null, key, 0, hash(key));
+    }
+
+    private static int hash(long key) {
+        return StripedLockPool.spread(Long.hashCode(key));
+    }
+
+    private static final class LongSegment extends Segment {
+        private static final long serialVersionUID = 1L;
+
+        private transient long[] keys = new long[INITIAL_CAPACITY];
+
+        private LongSegment(Supplier<Lock> lockProvider) {
+            super(lockProvider);
+        }
+
+        @Override
+        protected boolean matches(int i, Object o, long a, long b) {
+            return keys[i] == a;
+        }
+
+        @Override
+        protected void store(int i, Object o, long a, long b) {
+            keys[i] = a;
+        }
+
+        @Override
+        protected int hashAt(int i) {
+            return hash(keys[i]);
+        }
+
+        @Override
+        protected void move(int from, int to) {
+            keys[to] = keys[from];
+        }
+
+        @Override
+        protected void clear(int i) {
+            keys[i] = 0;
+        }
+
+        @Override
+        protected void resize(int capacity, int[] from, int[] to, int amount) {
+            final long[] oldKeys = keys;
+            keys = new long[capacity];
+            for (int k = 0; k < amount; k++) {
+                keys[to[k]] = oldKeys[from[k]];
+            }
+        }
+
+        @Override
+        protected String toString(Object o, long a, long b) {
+            return String.valueOf(a);
+        }
+    }
+}
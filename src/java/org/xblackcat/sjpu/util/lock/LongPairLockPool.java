@@ -0,0 +1,113 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Lock pool for composite keys of two {@code long} components, e.g. {@code (tenantId, entityId)}. The components are
+ * stored and compared directly in the segment tables the same way as in {@linkplain LongLockPool}, so no key object
+ * is allocated to acquire a lock.
+ *
+ * @author xBlackCat
+ */
+public class LongPairLockPool extends SegmentedLockPool {
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    public LongPairLockPool() {
+        this(ReentrantLock::new);
+    }
+
+    public LongPairLockPool(Supplier<Lock> lockProvider) {
+        this(DEFAULT_SEGMENTS, lockProvider);
+    }
+
+    /**
+     * @param segments     amount of independent segments. The value is rounded up to the nearest power of two.
+     * @param lockProvider lock factory
+     */
+    public LongPairLockPool(int segments, Supplier<Lock> lockProvider) {
+        super(segments, lockProvider, LongPairSegment::new);
+    }
+
+    public void lock(long first, long second) {
+        acquire(null, first, second, hash(first, second));
+    }
+
+    public void lockInterruptibly(long first, long second) throws InterruptedException {
+        acquireInterruptibly(null, first, second, hash(first, second));
+    }
+
+    public boolean tryLock(long first, long second) {
+        return tryAcquire(null, first, second, hash(first, second));
+    }
+
+    public boolean tryLock(long first, long second, long time, TimeUnit unit) throws InterruptedException {
+        return tryAcquire(null, first, second, hash(first, second), time, unit);
+    }
+
+    public void unlock(long first, long second) {
+        release(null, first, second, hash(first, second));
+    }
+
+    private static int hash(long first, long second) {
+        return StripedLockPool.spread(31 * Long.hashCode(first) + Long.hashCode(second));
+    }
+
+    private static final class LongPairSegment extends Segment {
+        private static final long serialVersionUID = 1L;
+
+        private transient long[] firsts = new long[INITIAL_CAPACITY];
+        private transient long[] seconds = new long[INITIAL_CAPACITY];
+
+        private LongPairSegment(Supplier<Lock> lockProvider) {
+            super(lockProvider);
+        }
+
+        @Override
+        protected boolean matches(int i, Object o, long a, long b) {
+            return firsts[i] == a && seconds[i] == b;
+        }
+
+        @Override
+        protected void store(int i, Object o, long a, long b) {
+            firsts[i] = a;
+            seconds[i] = b;
+        }
+
+        @Override
+        protected int hashAt(int i) {
+            return hash(firsts[i], seconds[i]);
+        }
+
+        @Override
+        protected void move(int from, int to) {
+            firsts[to] = firsts[from];
+            seconds[to] = seconds[from];
+        }
+
+        @Override
+        protected void clear(int i) {
+            firsts[i] = 0;
+            seconds[i] = 0;
+        }
+
+        @Override
+        protected void resize(int capacity, int[] from, int[] to, int amount) {
+            final long[] oldFirsts = firsts;
+            final long[] oldSeconds = seconds;
+            firsts = new long[capacity];
+            seconds = new long[capacity];
+            for (int k = 0; k < amount; k++) {
+                firsts[to[k]] = oldFirsts[from[k]];
+                seconds[to[k]] = oldSeconds[from[k]];
+            }
+        }
+
+        @Override
+        protected String toString(Object o, long a, long b) {
+            return a + ":" + b;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Lock pool for composite keys of an object and a {@code long} component. The components are stored and compared
+ * directly in the segment tables the same way as in {@linkplain LongLockPool}, so no key object is allocated to
+ * acquire a lock.
+ *
+ * @author xBlackCat
+ */
+public class ObjLongLockPool<T> extends SegmentedLockPool {
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    public ObjLongLockPool() {
+        this(ReentrantLock::new);
+    }
+
+    public ObjLongLockPool(Supplier<Lock> lockProvider) {
+        this(DEFAULT_SEGMENTS, lockProvider);
+    }
+
+    /**
+     * @param segments     amount of independent segments. The value is rounded up to the nearest power of two.
+     * @param lockProvider lock factory
+     */
+    public ObjLongLockPool(int segments, Supplier<Lock> lockProvider) {
+        super(segments, lockProvider, ObjLongSegment::new);
+    }
+
+    public void lock(T first, long second) {
+        acquire(first, second, 0, hash(first, second));
+    }
+
+    public void lockInterruptibly(T first, long second) throws InterruptedException {
+        acquireInterruptibly(first, second, 0, hash(first, second));
+    }
+
+    public boolean tryLock(T first, long second) {
+        return tryAcquire(first, second, 0, hash(first, second));
+    }
+
+    public boolean tryLock(T first, long second, long time, TimeUnit unit) throws InterruptedException {
+        return tryAcquire(first, second, 0, hash(first, second), time, unit);
+    }
+
+    public void unlock(T first, long second) {
+        release(first, second, 0, hash(first, second));
+    }
+
+    private static int hash(Object first, long second) {
+        return StripedLockPool.spread(31 * Objects.hashCode(first) + Long.hashCode(second));
+    }
+
+    private static final class ObjLongSegment extends Segment {
+        private static final long serialVersionUID = 1L;
+
+        private transient Object[] firsts = new Object[INITIAL_CAPACITY];
+        private transient long[] seconds = new long[INITIAL_CAPACITY];
+
+        private ObjLongSegment(Supplier<Lock> lockProvider) {
+            super(lockProvider);
+        }
+
+        @Override
+        protected boolean matches(int i, Object o, long a, long b) {
+            return seconds[i] == a && Objects.equals(firsts[i], o);
+        }
+
+        @Override
+        protected void store(int i, Object o, long a, long b) {
+            firsts[i] = o;
+            seconds[i] = a;
+        }
+
+        @Override
+        protected int hashAt(int i) {
+            return hash(firsts[i], seconds[i]);
+        }
+
+        @Override
+        protected void move(int from, int to) {
+            firsts[to] = firsts[from];
+            seconds[to] = seconds[from];
+        }
+
+        @Override
+        protected void clear(int i) {
+            firsts[i] = null;
+            seconds[i] = 0;
+        }
+
+        @Override
+        protected void resize(int capacity, int[] from, int[] to, int amount) {
+            final Object[] oldFirsts = firsts;
+            final long[] oldSeconds = seconds;
+            firsts = new Object[capacity];
+            seconds = new long[capacity];
+            for (int k = 0; k < amount; k++) {
+                firsts[to[k]] = oldFirsts[from[k]];
+                seconds[to[k]] = oldSeconds[from[k]];
+            }
+        }
+
+        @Override
+        protected String toString(Object o, long a, long b) {
+            return o + ":" + a;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reentrant lock which hands itself over to the waiter with the highest priority. A released lock is passed directly
+ * to the chosen waiter, so arriving threads could not barge in while there are waiters.
+ * <p>
+ * Waiters are ordered by their arrival time shifted back by {@code priority * aging}: a waiter is served as if it
+ * arrived earlier by the aging period per priority level. So a low priority waiter could be overtaken only by higher
+ * priority waiters arrived not later than the aging period per priority difference after it, and starvation is
+ * bounded. Waiters with equal effective time are served in arrival order.
+ * <p>
+ * Priorities are limited to the range from {@value #MIN_PRIORITY} to {@value #MAX_PRIORITY}, values out of the range are
+ * clamped. The priority shift of the arrival time is limited too, so any combination of priority and aging period
+ * keeps the order of waiters consistent.
+ * <p>
+ * Conditions are not supported.
+ *
+ * @author xBlackCat
+ */
+public class PriorityLock implements Lock {
+    public static final int MIN_PRIORITY = -1000;
+    public static final int NORMAL_PRIORITY = 0;
+    public static final int MAX_PRIORITY = 1000;
+
+    /**
+     * Upper limit of the arrival time shift (about 36 years): arrival times are counted from the lock creation and
+     * stay far from overflow when the shift is applied.
+     */
+    private static final long MAX_SHIFT_NANOS = 1L << 60;
+
+    private final ReentrantLock sync = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    private final long agingNanos;
+    private final long origin = System.nanoTime();
+
+    private Thread owner;
+    private int holds;
+    private long sequence;
+
+    /**
+     * @param aging time a waiter should wait to be equal to a waiter of the next priority level
+     * @param unit  the time unit of the {@code aging} argument
+     */
+    public PriorityLock(long aging, TimeUnit unit) {
+        if (aging < 0) {
+            throw new IllegalArgumentException("Aging period should not be negative: " + aging);
+        }
+        this.agingNanos = unit.toNanos(aging);
+    }
+
+    @Override
+    public void lock() {
+        lock(NORMAL_PRIORITY);
+    }
+
+    /**
+     * Acquires the lock with the specified priority. Higher values mean higher priority.
+     *
+     * @param priority priority from {@value #MIN_PRIORITY} to {@value #MAX_PRIORITY}
+     */
+    public void lock(int priority) {
+        final Waiter waiter = tryAcquireOrEnqueue(priority);
+        if (waiter == null) {
+            return;
+        }
+
+        boolean interrupted = false;
+        while (!waiter.granted) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        lockInterruptibly(NORMAL_PRIORITY);
+    }
+
+    public void lockInterruptibly(int priority) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        final Waiter waiter = tryAcquireOrEnqueue(priority);
+        if (waiter != null) {
+            await(waiter, 0);
+        }
+    }
+
+    @Override
+    public boolean tryLock() {
+        sync.lock();
+        try {
+            final Thread current = Thread.currentThread();
+            if (owner == current) {
+                holds++;
+                return true;
+            }
+            if (owner == null) {
+                owner = current;
+                holds = 1;
+                return true;
+            }
+            return false;
+        } finally {
+            sync.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        return tryLock(NORMAL_PRIORITY, time, unit);
+    }
+
+    public boolean tryLock(int priority, long time, TimeUnit unit) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        final long deadline = System.nanoTime() + Math.max(unit.toNanos(time), 0);
+        final Waiter waiter = tryAcquireOrEnqueue(priority);
+        // Zero deadline means no timeout
+        return waiter == null || await(waiter, deadline == 0 ? 1 : deadline);
+    }
+
+    @Override
+    public void unlock() {
+        final Thread next;
+        sync.lock();
+        try {
+            if (owner != Thread.currentThread()) {
+                throw new IllegalMonitorStateException();
+            }
+            if (--holds > 0) {
+                return;
+            }
+
+            final Waiter waiter = waiters.poll();
+            if (waiter == null) {
+                owner = null;
+                return;
+            }
+            // Direct handoff: the waiter owns the lock before it is woken up
+            owner = waiter.thread;
+            holds = 1;
+            waiter.granted = true;
+            next = waiter.thread;
+        } finally {
+            sync.unlock();
+        }
+        LockSupport.unpark(next);
+    }
+
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException("Conditions are not supported by " + getClass().getSimpleName());
+    }
+
+    public boolean isLocked() {
+        sync.lock();
+        try {
+            return owner != null;
+        } finally {
+            sync.unlock();
+        }
+    }
+
+    /**
+     * Returns amount of threads waiting for the lock.
+     */
+    public int getQueueLength() {
+        sync.lock();
+        try {
+            return waiters.size();
+        } finally {
+            sync.unlock();
+        }
+    }
+
+    /**
+     * @return {@code null} if the lock is acquired or the registered waiter otherwise
+     */
+    private Waiter tryAcquireOrEnqueue(int priority) {
+        final Thread current = Thread.currentThread();
+        sync.lock();
+        try {
+            if (owner == current) {
+                holds++;
+                return null;
+            }
+            if (owner == null) {
+                owner = current;
+                holds = 1;
+                return null;
+            }
+            final Waiter waiter = new Waiter(current, System.nanoTime() - origin - shift(priority), sequence++);
+            waiters.add(waiter);
+            return waiter;
+        } finally {
+            sync.unlock();
+        }
+    }
+
+    /**
+     * Returns the arrival time shift for the priority: {@code priority * aging} clamped to the allowed range.
+     */
+    private long shift(int priority) {
+        final int p = Math.max(MIN_PRIORITY, Math.min(MAX_PRIORITY, priority));
+        if (p == 0 || agingNanos <= MAX_SHIFT_NANOS / Math.abs(p)) {
+            return p * agingNanos;
+        }
+        return p > 0 ? MAX_SHIFT_NANOS : -MAX_SHIFT_NANOS;
+    }
+
+    /**
+     * Waits for the lock handoff.
+     *
+     * @param deadline waiting deadline or {@code 0} to wait without a timeout
+     * @return {@code true} if the lock is handed over and {@code false} if the waiting is timed out
+     */
+    private boolean await(Waiter waiter, long deadline) throws InterruptedException {
+        while (!waiter.granted) {
+            if (deadline == 0) {
+                LockSupport.park(this);
+            } else {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return cancel(waiter);
+                }
+                LockSupport.parkNanos(this, remaining);
+            }
+            if (Thread.interrupted()) {
+                if (cancel(waiter)) {
+                    // The lock is already handed over: keep it and restore the interruption
+                    Thread.currentThread().interrupt();
+                    return true;
+                }
+                throw new InterruptedException();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the lock was handed over to the waiter before it was cancelled
+     */
+    private boolean cancel(Waiter waiter) {
+        sync.lock();
+        try {
+            if (waiter.granted) {
+                return true;
+            }
+            waiters.remove(waiter);
+            return false;
+        } finally {
+            sync.unlock();
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+        private final Thread thread;
+        /**
+         * Arrival time since the lock creation shifted by the priority. Does not depend on the current time, so
+         * the queue order is stable.
+         */
+        private final long rank;
+        private final long sequence;
+        private volatile boolean granted;
+
+        private Waiter(Thread thread, long rank, long sequence) {
+            this.thread = thread;
+            this.rank = rank;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Waiter o) {
+            final int c = Long.compare(rank, o.rank);
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final Thread o;
+        sync.lock();
+        try {
+            o = owner;
+        } finally {
+            sync.unlock();
+        }
+        return super.toString() + (o == null ? "[Unlocked]" : "[Locked by thread " + o.getName() + "]");
+    }
+}
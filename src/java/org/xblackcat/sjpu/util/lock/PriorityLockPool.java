@@ -0,0 +1,110 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Lock pool of {@linkplain PriorityLock priority locks}: a released key lock is handed over to the waiter with
+ * the highest priority, e.g. interactive requests could be served before batch jobs competing for the same keys.
+ * Low priority waiters are not starved: waiters are ranked by their arrival time shifted back by the aging period per
+ * priority level, so a waiter could be overtaken only by higher priority waiters arrived within that shift after it.
+ * Plain {@linkplain ILockPool} methods acquire locks with {@linkplain PriorityLock#NORMAL_PRIORITY normal priority}.
+ *
+ * @author xBlackCat
+ */
+public class PriorityLockPool<ID> extends ConcurrentLockPool<ID> {
+    public static final long DEFAULT_AGING_MILLIS = 100;
+
+    public PriorityLockPool() {
+        this(DEFAULT_AGING_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param aging time a waiter should wait to be equal to a waiter of the next priority level
+     * @param unit  the time unit of the {@code aging} argument
+     */
+    public PriorityLockPool(long aging, TimeUnit unit) {
+        this(toAgingNanos(aging, unit));
+    }
+
+    private PriorityLockPool(long agingNanos) {
+        super(() -> new PriorityLock(agingNanos, TimeUnit.NANOSECONDS));
+    }
+
+    /**
+     * Validates the arguments before the pool is constructed: locks are created lazily by the lock provider.
+     */
+    private static long toAgingNanos(long aging, TimeUnit unit) {
+        if (aging < 0) {
+            throw new IllegalArgumentException("Aging period should not be negative: " + aging);
+        }
+        return Objects.requireNonNull(unit, "Time unit should be specified").toNanos(aging);
+    }
+
+    /**
+     * Returns a lock for the key which is acquired with the specified priority.
+     */
+    public Lock getLock(ID key, int priority) {
+        return new PriorityLockWrapper(key, priority);
+    }
+
+    /**
+     * Acquires the lock for the specified key with the specified priority. Higher values mean higher priority.
+     * The lock should be released by {@linkplain #unlock(Object)} method.
+     */
+    public void lock(ID key, int priority) {
+        acquire(key, l -> {
+            ((PriorityLock) l).lock(priority);
+            return true;
+        });
+    }
+
+    public boolean tryLock(ID key, int priority, long time, TimeUnit unit) throws InterruptedException {
+        return acquire(key, l -> ((PriorityLock) l).tryLock(priority, time, unit));
+    }
+
+    private class PriorityLockWrapper implements Lock {
+        private final ID key;
+        private final int priority;
+
+        public PriorityLockWrapper(ID key, int priority) {
+            this.key = key;
+            this.priority = priority;
+        }
+
+        @Override
+        public void lock() {
+            PriorityLockPool.this.lock(key, priority);
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            acquire(key, l -> {
+                ((PriorityLock) l).lockInterruptibly(priority);
+                return true;
+            });
+        }
+
+        @Override
+        public boolean tryLock() {
+            return acquire(key, Lock::tryLock);
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return PriorityLockPool.this.tryLock(key, priority, time, unit);
+        }
+
+        @Override
+        public void unlock() {
+            PriorityLockPool.this.unlock(key);
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Conditions are not supported by priority locks");
+        }
+    }
+}
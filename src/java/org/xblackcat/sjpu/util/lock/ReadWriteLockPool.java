@@ -0,0 +1,185 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Pool of read-write locks. Readers and writers of a key share the same reference counter, so a holder is evicted from
+ * the pool only when the key is neither read nor written.
+ *
+ * @author xBlackCat
+ */
+public class ReadWriteLockPool<ID> implements IReadWriteLockPool<ID> {
+    protected final Function<ID, ReadWriteLock> lockProvider;
+    protected final ConcurrentMap<ID, ReadWriteLockHolder> lockPool = new ConcurrentHashMap<>();
+
+    private final BiFunction<ID, ReadWriteLockHolder, ReadWriteLockHolder> useHolder;
+    private final BiFunction<ID, ReadWriteLockHolder, ReadWriteLockHolder> releaseHolder = (id, h) -> h.decrement() ? null : h;
+
+    public ReadWriteLockPool() {
+        this((Supplier<ReadWriteLock>) ReentrantReadWriteLock::new);
+    }
+
+    public ReadWriteLockPool(Supplier<ReadWriteLock> lockProvider) {
+        this(id -> lockProvider.get());
+    }
+
+    public ReadWriteLockPool(Function<ID, ReadWriteLock> lockProvider) {
+        this.lockProvider = lockProvider;
+        useHolder = (id, h) -> {
+            if (h == null) {
+                h = new ReadWriteLockHolder(lockProvider.apply(id));
+            }
+            h.increment();
+            return h;
+        };
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock(ID key) {
+        return new ReadWriteLockWrapper(key);
+    }
+
+    protected ReadWriteLockHolder useLockFromPool(ID key) {
+        return lockPool.compute(key, useHolder);
+    }
+
+    protected void releaseLockFromPool(ID key) {
+        lockPool.computeIfPresent(key, releaseHolder);
+    }
+
+    protected ReadWriteLockHolder getLockFromPool(ID key) {
+        final ReadWriteLockHolder lockHolder = lockPool.get(key);
+        if (lockHolder == null) {
+            throw new IllegalStateException("Lock '" + key + "' is not acquired");
+        }
+        return lockHolder;
+    }
+
+    private class ReadWriteLockWrapper implements ReadWriteLock {
+        private final Lock readLock;
+        private final Lock writeLock;
+
+        public ReadWriteLockWrapper(ID key) {
+            readLock = new LockWrapper(key, ReadWriteLock::readLock);
+            writeLock = new LockWrapper(key, ReadWriteLock::writeLock);
+        }
+
+        @Override
+        public Lock readLock() {
+            return readLock;
+        }
+
+        @Override
+        public Lock writeLock() {
+            return writeLock;
+        }
+    }
+
+    private class LockWrapper implements Lock {
+        private final ID key;
+        private final Function<ReadWriteLock, Lock> selector;
+
+        public LockWrapper(ID key, Function<ReadWriteLock, Lock> selector) {
+            this.key = key;
+            this.selector = selector;
+        }
+
+        @Override
+        public void lock() {
+            ReadWriteLockHolder lockHolder = useLockFromPool(key);
+            try {
+                selector.apply(lockHolder.getLock()).lock();
+            } catch (RuntimeException | Error e) {
+                releaseLockFromPool(key);
+                throw e;
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            ReadWriteLockHolder lockHolder = useLockFromPool(key);
+            boolean locked = false;
+            try {
+                selector.apply(lockHolder.getLock()).lockInterruptibly();
+                locked = true;
+            } finally {
+                if (!locked) {
+                    releaseLockFromPool(key);
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            ReadWriteLockHolder lockHolder = useLockFromPool(key);
+            boolean locked = false;
+            try {
+                locked = selector.apply(lockHolder.getLock()).tryLock();
+                return locked;
+            } finally {
+                if (!locked) {
+                    releaseLockFromPool(key);
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            ReadWriteLockHolder lockHolder = useLockFromPool(key);
+            boolean locked = false;
+            try {
+                locked = selector.apply(lockHolder.getLock()).tryLock(time, unit);
+                return locked;
+            } finally {
+                if (!locked) {
+                    releaseLockFromPool(key);
+                }
+            }
+        }
+
+        @Override
+        public void unlock() {
+            ReadWriteLockHolder lockHolder = getLockFromPool(key);
+
+            // Lock should be released before the holder is evicted from the pool
+            selector.apply(lockHolder.getLock()).unlock();
+            releaseLockFromPool(key);
+        }
+
+        @Override
+        public Condition newCondition() {
+            return selector.apply(getLockFromPool(key).getLock()).newCondition();
+        }
+    }
+
+    protected static final class ReadWriteLockHolder {
+        protected final AtomicInteger requested = new AtomicInteger(0);
+        protected final ReadWriteLock lock;
+
+        ReadWriteLockHolder(ReadWriteLock lock) {
+            this.lock = lock;
+        }
+
+        public ReadWriteLock getLock() {
+            return lock;
+        }
+
+        public void increment() {
+            requested.incrementAndGet();
+        }
+
+        public boolean decrement() {
+            return 0 == requested.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.xblackcat.sjpu.util.lock.ConcurrentLockPool.LockAcquirer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lock pool which keeps unused holders for a while. A holder is not removed from the pool when its reference counter
+ * drops to zero, so a repeated lock of the same key costs a map lookup and a CAS instead of a holder allocation
+ * with an insertion to and a removal from the map.
+ * <p>
+ * Idle holders are evicted when they are not used longer than the time to live or when there are more idle holders
+ * than allowed. Idle holders are queued in the order they become idle, so the oldest ones are evicted first and
+ * a sweep never scans the whole pool. Expired holders are swept by releasing threads at most once per time to live
+ * period (but not more often than once per millisecond); {@linkplain #cleanUp()} method could be called to perform
+ * the sweep from a background thread.
+ *
+ * @author xBlackCat
+ */
+public class RetainingLockPool<ID> implements ILockPool<ID> {
+    protected final Function<ID, Lock> lockProvider;
+    protected final ConcurrentMap<ID, RetainedHolder> lockPool = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<RetainingLockPool> LAST_SWEEP =
+            AtomicLongFieldUpdater.newUpdater(RetainingLockPool.class, "lastSweep");
+    private static final long MIN_SWEEP_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final ThreadLocal<HeldLocks<RetainedHolder>> heldLocks = ThreadLocal.withInitial(HeldLocks::new);
+    private final long ttlNanos;
+    private final long sweepPeriodNanos;
+    private final int maxIdle;
+    private final LongAdder idleHolders = new LongAdder();
+    /**
+     * Idle holders in order of their idle time. A holder could be kept in the queue after it is used again: such
+     * entries are dropped or moved to the tail by a sweep.
+     */
+    private final ConcurrentLinkedDeque<RetainedHolder> idleQueue = new ConcurrentLinkedDeque<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private volatile long lastSweep = System.nanoTime();
+
+    /**
+     * @param ttl     time an unused holder is kept in the pool
+     * @param unit    the time unit of the {@code ttl} argument
+     * @param maxIdle maximum amount of unused holders kept in the pool
+     */
+    public RetainingLockPool(long ttl, TimeUnit unit, int maxIdle) {
+        this((Supplier<Lock>) ReentrantLock::new, ttl, unit, maxIdle);
+    }
+
+    public RetainingLockPool(Supplier<Lock> lockProvider, long ttl, TimeUnit unit, int maxIdle) {
+        this(id -> lockProvider.get(), ttl, unit, maxIdle);
+    }
+
+    public RetainingLockPool(Function<ID, Lock> lockProvider, long ttl, TimeUnit unit, int maxIdle) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("Time to live should not be negative: " + ttl);
+        }
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("Maximum amount of idle holders should not be negative: " + maxIdle);
+        }
+        this.lockProvider = lockProvider;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.sweepPeriodNanos = Math.max(ttlNanos, MIN_SWEEP_PERIOD_NANOS);
+        this.maxIdle = maxIdle;
+    }
+
+    @Override
+    public Lock getLock(ID key) {
+        return new LockWrapper(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The acquired holder is remembered by the current thread, so nested acquisitions of the key by the thread
+     * do not touch the pool and the lock is released without looking up the holder again.
+     */
+    @Override
+    public void lock(ID key) {
+        acquire(key, LockAcquirer.LOCK);
+    }
+
+    @Override
+    public boolean tryLock(ID key, long time, TimeUnit unit) throws InterruptedException {
+        return acquire(key, l -> l.tryLock(time, unit));
+    }
+
+    @Override
+    public void unlock(ID key) {
+        final HeldLocks<RetainedHolder> held = heldLocks.get();
+        final int idx = held.indexOf(key);
+        if (idx < 0) {
+            // The holder could be still used by the owner thread, so it should not be released by a foreign one
+            throw new IllegalStateException("Lock '" + key + "' is not acquired by the current thread");
+        }
+
+        final RetainedHolder lockHolder = held.holderAt(idx);
+        lockHolder.getLock().unlock();
+        if (held.decrementAt(idx) == 0) {
+            releaseLockFromPool(lockHolder);
+        }
+    }
+
+    /**
+     * Acquires the lock for the key the same way as {@linkplain ConcurrentLockPool#acquire(Object, LockAcquirer)}
+     * does: the holder is taken from the pool only for the first acquisition of the key by the current thread and is
+     * returned back if the lock is not acquired.
+     *
+     * @return {@code true} if the lock is acquired
+     */
+    protected <E extends Throwable> boolean acquire(ID key, LockAcquirer<E> acquirer) throws E {
+        final HeldLocks<RetainedHolder> held = heldLocks.get();
+        final int idx = held.indexOf(key);
+        if (idx >= 0) {
+            // Nested acquisition: the holder is already referenced by the current thread
+            if (!acquirer.acquire(held.holderAt(idx).getLock())) {
+                return false;
+            }
+            held.incrementAt(idx);
+            return true;
+        }
+
+        RetainedHolder lockHolder = useLockFromPool(key);
+        boolean locked = false;
+        try {
+            locked = acquirer.acquire(lockHolder.getLock());
+        } finally {
+            if (!locked) {
+                releaseLockFromPool(lockHolder);
+            }
+        }
+        if (locked) {
+            held.push(key, lockHolder);
+        }
+        return locked;
+    }
+
+    /**
+     * Returns amount of holders in the pool which are not used at the moment.
+     */
+    public long getIdleHolders() {
+        return idleHolders.sum();
+    }
+
+    /**
+     * Evicts all the expired idle holders and the excess of idle holders over the allowed amount.
+     */
+    public void cleanUp() {
+        lastSweep = System.nanoTime();
+        sweep();
+    }
+
+    /**
+     * Evicts idle holders from the head of the idle queue while they are expired or there are more idle holders than
+     * allowed. Only one thread sweeps the pool at a time.
+     */
+    private void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final long now = System.nanoTime();
+            // Each holder could be moved to the tail at most once per sweep
+            int budget = idleQueue.size();
+            RetainedHolder h;
+            while ((h = idleQueue.pollFirst()) != null) {
+                if (h.requested != 0) {
+                    // The holder is used again: drop it from the queue. It is enqueued again when becomes idle.
+                    dequeue(h);
+                    continue;
+                }
+                if (h.idleSince != h.queuedSince && budget-- > 0) {
+                    // The holder was used and became idle again after it was enqueued
+                    h.queuedSince = h.idleSince;
+                    idleQueue.offerLast(h);
+                    continue;
+                }
+                if (now - h.idleSince < ttlNanos && idleHolders.sum() <= maxIdle) {
+                    idleQueue.offerFirst(h);
+                    return;
+                }
+                if (h.evict()) {
+                    // A new holder could be already put instead of the evicted one
+                    lockPool.remove(h.key, h);
+                    idleHolders.decrement();
+                } else {
+                    dequeue(h);
+                }
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private void dequeue(RetainedHolder h) {
+        h.queued = 0;
+        // The holder could become idle before the flag is cleared: enqueue it again on its behalf
+        if (h.requested == 0) {
+            enqueue(h);
+        }
+    }
+
+    private void enqueue(RetainedHolder h) {
+        if (RetainedHolder.QUEUED.compareAndSet(h, 0, 1)) {
+            h.queuedSince = h.idleSince;
+            idleQueue.offerLast(h);
+        }
+    }
+
+    /**
+     * Gets a holder for the key from the pool (creates a new one if necessary) and increments its reference counter.
+     */
+    protected RetainedHolder useLockFromPool(ID key) {
+        while (true) {
+            RetainedHolder lockHolder = lockPool.get(key);
+            if (lockHolder == null) {
+                final RetainedHolder newHolder = new RetainedHolder(key, lockProvider.apply(key));
+                lockHolder = lockPool.putIfAbsent(key, newHolder);
+                if (lockHolder == null) {
+                    return newHolder;
+                }
+            }
+
+            final int before = lockHolder.increment();
+            if (before > 0) {
+                return lockHolder;
+            } else if (before == 0) {
+                idleHolders.decrement();
+                return lockHolder;
+            }
+            // The holder is evicted: help to remove it and try again
+            lockPool.remove(key, lockHolder);
+        }
+    }
+
+    /**
+     * Decrements the reference counter of the holder. An unused holder is kept in the pool.
+     */
+    protected void releaseLockFromPool(RetainedHolder lockHolder) {
+        if (!lockHolder.decrement()) {
+            return;
+        }
+        final long now = System.nanoTime();
+        lockHolder.idleSince = now;
+        idleHolders.increment();
+        enqueue(lockHolder);
+
+        final long last = lastSweep;
+        if (now - last >= sweepPeriodNanos && LAST_SWEEP.compareAndSet(this, last, now)) {
+            sweep();
+        } else if (idleHolders.sum() > maxIdle) {
+            // Evicts the oldest idle holders only: the cost is amortized by the releases made them idle
+            sweep();
+        }
+    }
+
+    protected RetainedHolder getLockFromPool(ID key) {
+        final RetainedHolder lockHolder = lockPool.get(key);
+        if (lockHolder == null || lockHolder.getRequested() <= 0) {
+            throw new IllegalStateException("Lock '" + key + "' is not acquired");
+        }
+        return lockHolder;
+    }
+
+    private class LockWrapper implements Lock {
+        private final ID key;
+
+        public LockWrapper(ID key) {
+            this.key = key;
+        }
+
+        @Override
+        public void lock() {
+            RetainingLockPool.this.lock(key);
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            acquire(key, LockAcquirer.LOCK_INTERRUPTIBLY);
+        }
+
+        @Override
+        public boolean tryLock() {
+            return acquire(key, LockAcquirer.TRY_LOCK);
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return RetainingLockPool.this.tryLock(key, time, unit);
+        }
+
+        @Override
+        public void unlock() {
+            RetainingLockPool.this.unlock(key);
+        }
+
+        @Override
+        public Condition newCondition() {
+            return getLockFromPool(key).getLock().newCondition();
+        }
+    }
+
+    /**
+     * Lock holder with an inline reference counter. Negative counter value marks an evicted holder which could not be
+     * used anymore.
+     */
+    protected static final class RetainedHolder {
+        private static final AtomicIntegerFieldUpdater<RetainedHolder> REQUESTED =
+                AtomicIntegerFieldUpdater.newUpdater(RetainedHolder.class, "requested");
+        private static final AtomicIntegerFieldUpdater<RetainedHolder> QUEUED =
+                AtomicIntegerFieldUpdater.newUpdater(RetainedHolder.class, "queued");
+        private static final int EVICTED = -1;
+
+        protected final Object key;
+        protected final Lock lock;
+        protected volatile int requested = 1;
+        protected volatile long idleSince;
+        /**
+         * Non-zero if the holder is in the idle queue.
+         */
+        volatile int queued;
+        /**
+         * Idle time of the holder at the moment it was put to the idle queue.
+         */
+        long queuedSince;
+
+        RetainedHolder(Object key, Lock lock) {
+            this.key = key;
+            this.lock = lock;
+        }
+
+        public Lock getLock() {
+            return lock;
+        }
+
+        public int getRequested() {
+            return requested;
+        }
+
+        /**
+         * @return previous value of the counter. Negative value means the holder is evicted and was not acquired.
+         */
+        int increment() {
+            while (true) {
+                final int r = requested;
+                if (r == EVICTED || REQUESTED.compareAndSet(this, r, r + 1)) {
+                    return r;
+                }
+            }
+        }
+
+        /**
+         * @return {@code true} if the holder is not used anymore
+         */
+        boolean decrement() {
+            return 0 == REQUESTED.decrementAndGet(this);
+        }
+
+        boolean evict() {
+            return REQUESTED.compareAndSet(this, 0, EVICTED);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Base of lock pools for unboxed keys. The pool consists of several segments, each segment is an open-addressing hash
+ * table of keys, reference counters and locks guarded by the segment own lock. Locks of evicted keys are kept in
+ * a small per-segment free list and reused for new keys, so a lock/unlock cycle does not produce garbage.
+ * <p>
+ * A key is passed to the pool as an object part and two {@code long} parts together with its hash: each key type uses
+ * only the parts it needs and stores them in its own segment arrays.
+ *
+ * @author xBlackCat
+ */
+abstract class SegmentedLockPool {
+    protected final Supplier<Lock> lockProvider;
+    protected final Segment[] segments;
+    private final int segmentShift;
+
+    /**
+     * @param segments       amount of independent segments. The value is rounded up to the nearest power of two.
+     * @param lockProvider   lock factory
+     * @param segmentFactory factory of segments storing the pool keys
+     */
+    protected SegmentedLockPool(int segments, Supplier<Lock> lockProvider, Function<Supplier<Lock>, Segment> segmentFactory) {
+        if (segments <= 0 || segments > 1 << 16) {
+            throw new IllegalArgumentException("Invalid amount of segments: " + segments);
+        }
+        final int size = StripedLockPool.ceilingPowerOfTwo(segments);
+
+        this.lockProvider = lockProvider;
+        this.segments = new Segment[size];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; i++) {
+            this.segments[i] = segmentFactory.apply(lockProvider);
+        }
+    }
+
+    /**
+     * Returns amount of keys registered in the pool.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock();
+            try {
+                size += segment.size;
+            } finally {
+                segment.unlock();
+            }
+        }
+        return size;
+    }
+
+    protected void acquire(Object o, long a, long b, int h) {
+        final Segment segment = segmentFor(h);
+        final Lock lock = segment.use(o, a, b, h);
+        try {
+            lock.lock();
+        } catch (RuntimeException | Error e) {
+            segment.release(o, a, b, h, false);
+            throw e;
+        }
+    }
+
+    protected void acquireInterruptibly(Object o, long a, long b, int h) throws InterruptedException {
+        final Segment segment = segmentFor(h);
+        final Lock lock = segment.use(o, a, b, h);
+        boolean locked = false;
+        try {
+            lock.lockInterruptibly();
+            locked = true;
+        } finally {
+            if (!locked) {
+                segment.release(o, a, b, h, false);
+            }
+        }
+    }
+
+    protected boolean tryAcquire(Object o, long a, long b, int h) {
+        final Segment segment = segmentFor(h);
+        final Lock lock = segment.use(o, a, b, h);
+        boolean locked = false;
+        try {
+            locked = lock.tryLock();
+            return locked;
+        } finally {
+            if (!locked) {
+                segment.release(o, a, b, h, false);
+            }
+        }
+    }
+
+    protected boolean tryAcquire(Object o, long a, long b, int h, long time, TimeUnit unit) throws InterruptedException {
+        final Segment segment = segmentFor(h);
+        final Lock lock = segment.use(o, a, b, h);
+        boolean locked = false;
+        try {
+            locked = lock.tryLock(time, unit);
+            return locked;
+        } finally {
+            if (!locked) {
+                segment.release(o, a, b, h, false);
+            }
+        }
+    }
+
+    protected void release(Object o, long a, long b, int h) {
+        segmentFor(h).release(o, a, b, h, true);
+    }
+
+    private Segment segmentFor(int h) {
+        return segments[h >>> segmentShift & (segments.length - 1)];
+    }
+
+    /**
+     * Open-addressing hash table with linear probing. Slots with {@code null} lock are empty. Implementations store
+     * the key parts in their own arrays of the same capacity as the table.
+     */
+    protected abstract static class Segment extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        protected static final int INITIAL_CAPACITY = 16;
+        private static final int MAX_FREE_LOCKS = 16;
+
+        private final transient Supplier<Lock> lockProvider;
+        private transient Lock[] locks = new Lock[INITIAL_CAPACITY];
+        private transient int[] counts = new int[INITIAL_CAPACITY];
+        private transient int size;
+
+        private final transient Lock[] freeLocks = new Lock[MAX_FREE_LOCKS];
+        private transient int freeSize;
+
+        protected Segment(Supplier<Lock> lockProvider) {
+            this.lockProvider = lockProvider;
+        }
+
+        /**
+         * Checks if the slot holds the given key.
+         */
+        protected abstract boolean matches(int i, Object o, long a, long b);
+
+        /**
+         * Stores the key to the slot.
+         */
+        protected abstract void store(int i, Object o, long a, long b);
+
+        /**
+         * Returns the hash of the key stored in the slot.
+         */
+        protected abstract int hashAt(int i);
+
+        /**
+         * Moves the key from one slot to another one.
+         */
+        protected abstract void move(int from, int to);
+
+        /**
+         * Clears the slot.
+         */
+        protected abstract void clear(int i);
+
+        /**
+         * Replaces the key arrays with new ones of the given capacity and copies the first {@code amount} keys from
+         * the {@code from} slots of the old arrays to the {@code to} slots of the new ones.
+         */
+        protected abstract void resize(int capacity, int[] from, int[] to, int amount);
+
+        protected abstract String toString(Object o, long a, long b);
+
+        private Lock use(Object o, long a, long b, int h) {
+            lock();
+            try {
+                final int mask = locks.length - 1;
+                int i = h & mask;
+                while (locks[i] != null) {
+                    if (matches(i, o, a, b)) {
+                        counts[i]++;
+                        return locks[i];
+                    }
+                    i = (i + 1) & mask;
+                }
+
+                final Lock lock = freeSize > 0 ? freeLocks[--freeSize] : lockProvider.get();
+                freeLocks[freeSize] = null;
+                store(i, o, a, b);
+                locks[i] = lock;
+                counts[i] = 1;
+                if (++size > locks.length >>> 1) {
+                    rehash(locks.length << 1);
+                }
+                return lock;
+            } finally {
+                unlock();
+            }
+        }
+
+        private void release(Object o, long a, long b, int h, boolean unlockFirst) {
+            lock();
+            try {
+                final int mask = locks.length - 1;
+                int i = h & mask;
+                while (locks[i] == null || !matches(i, o, a, b)) {
+                    if (locks[i] == null) {
+                        throw new IllegalStateException("Lock '" + toString(o, a, b) + "' is not acquired");
+                    }
+                    i = (i + 1) & mask;
+                }
+
+                final Lock lock = locks[i];
+                if (unlockFirst) {
+                    lock.unlock();
+                }
+                if (--counts[i] == 0) {
+                    delete(i);
+                    if (freeSize < MAX_FREE_LOCKS) {
+                        freeLocks[freeSize++] = lock;
+                    }
+                }
+            } finally {
+                unlock();
+            }
+        }
+
+        /**
+         * Removes an entry and shifts back the following entries of the probe sequence to keep them reachable.
+         */
+        private void delete(int i) {
+            final int mask = locks.length - 1;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (locks[j] == null) {
+                    break;
+                }
+                final int k = hashAt(j) & mask;
+                if (i <= j ? (i < k && k <= j) : (i < k || k <= j)) {
+                    // The entry is still reachable from its home slot
+                    continue;
+                }
+                move(j, i);
+                locks[i] = locks[j];
+                counts[i] = counts[j];
+                i = j;
+            }
+            clear(i);
+            locks[i] = null;
+            counts[i] = 0;
+
+            if (--size < locks.length >>> 3 && locks.length > INITIAL_CAPACITY) {
+                rehash(locks.length >>> 1);
+            }
+        }
+
+        private void rehash(int capacity) {
+            final Lock[] oldLocks = locks;
+            final int[] oldCounts = counts;
+            final int[] from = new int[size];
+            final int[] to = new int[size];
+
+            locks = new Lock[capacity];
+            counts = new int[capacity];
+            final int mask = capacity - 1;
+            int amount = 0;
+            for (int j = 0; j < oldLocks.length; j++) {
+                if (oldLocks[j] != null) {
+                    int i = hashAt(j) & mask;
+                    while (locks[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    locks[i] = oldLocks[j];
+                    counts[i] = oldCounts[j];
+                    from[amount] = j;
+                    to[amount] = i;
+                    amount++;
+                }
+            }
+            resize(capacity, from, to, amount);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Pool of semaphores. A semaphore for a key is created on demand with amount of permits provided by the permits
+ * function and is evicted from the pool as soon as all the permits are returned and nobody waits for them.
+ *
+ * @author xBlackCat
+ */
+public class SemaphorePool<ID> implements ISemaphorePool<ID> {
+    protected final Function<ID, Integer> permitsProvider;
+    protected final boolean fair;
+    protected final ConcurrentMap<ID, SemaphoreHolder> lockPool = new ConcurrentHashMap<>();
+
+    private final BiFunction<ID, SemaphoreHolder, SemaphoreHolder> useHolder;
+    private final BiFunction<ID, SemaphoreHolder, SemaphoreHolder> releaseHolder = (id, h) -> h.add(-1) ? null : h;
+
+    public SemaphorePool(int permits) {
+        this(id -> permits);
+    }
+
+    public SemaphorePool(Function<ID, Integer> permitsProvider) {
+        this(permitsProvider, false);
+    }
+
+    /**
+     * @param permitsProvider function to get amount of permits for a key
+     * @param fair            {@code true} if the semaphores should guarantee first-in first-out granting of permits
+     *                        under contention
+     */
+    public SemaphorePool(Function<ID, Integer> permitsProvider, boolean fair) {
+        this.permitsProvider = permitsProvider;
+        this.fair = fair;
+        useHolder = (id, h) -> {
+            if (h == null) {
+                h = new SemaphoreHolder(new Semaphore(permitsProvider.apply(id), fair));
+            }
+            h.add(1);
+            return h;
+        };
+    }
+
+    @Override
+    public void acquire(ID key, int permits) throws InterruptedException {
+        final SemaphoreHolder holder = useSemaphoreFromPool(key, permits);
+        boolean acquired = false;
+        try {
+            holder.getSemaphore().acquire(permits);
+            holder.acquired(permits);
+            acquired = true;
+        } finally {
+            if (!acquired) {
+                releaseSemaphoreFromPool(key, holder, permits);
+            }
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(ID key, int permits, long timeout, TimeUnit unit) throws InterruptedException {
+        final SemaphoreHolder holder = useSemaphoreFromPool(key, permits);
+        boolean acquired = false;
+        try {
+            acquired = holder.getSemaphore().tryAcquire(permits, timeout, unit);
+            if (acquired) {
+                holder.acquired(permits);
+            }
+            return acquired;
+        } finally {
+            if (!acquired) {
+                releaseSemaphoreFromPool(key, holder, permits);
+            }
+        }
+    }
+
+    @Override
+    public void release(ID key, int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Amount of permits should be positive: " + permits);
+        }
+        if (!lockPool.containsKey(key)) {
+            throw new IllegalStateException("Semaphore '" + key + "' has no acquired permits");
+        }
+
+        // The check and the release are atomic with the holder eviction
+        lockPool.computeIfPresent(key, (id, h) -> {
+            if (!h.released(permits)) {
+                throw new IllegalStateException(
+                        "Semaphore '" + id + "' has less than " + permits + " acquired permits: " + h.getAcquired()
+                );
+            }
+            // Permits should be returned before the holder is evicted from the pool
+            h.getSemaphore().release(permits);
+            return h.add(-permits) ? null : h;
+        });
+    }
+
+    /**
+     * Registers the requested permits in the holder reference counter. Only a single unit is registered atomically with
+     * the holder lookup: the holder could not be evicted while it is referenced, so the rest is added separately to
+     * avoid allocation of a capturing mapping function.
+     */
+    protected SemaphoreHolder useSemaphoreFromPool(ID key, int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Amount of permits should be positive: " + permits);
+        }
+        final SemaphoreHolder holder = lockPool.compute(key, useHolder);
+        if (permits > 1) {
+            holder.add(permits - 1);
+        }
+        return holder;
+    }
+
+    protected void releaseSemaphoreFromPool(ID key, SemaphoreHolder holder, int permits) {
+        if (permits > 1) {
+            holder.add(1 - permits);
+        }
+        lockPool.computeIfPresent(key, releaseHolder);
+    }
+
+    /**
+     * Semaphore holder. The reference counter is amount of permits acquired and requested for the key.
+     */
+    protected static final class SemaphoreHolder {
+        private static final AtomicIntegerFieldUpdater<SemaphoreHolder> REQUESTED =
+                AtomicIntegerFieldUpdater.newUpdater(SemaphoreHolder.class, "requested");
+        private static final AtomicIntegerFieldUpdater<SemaphoreHolder> ACQUIRED =
+                AtomicIntegerFieldUpdater.newUpdater(SemaphoreHolder.class, "acquired");
+
+        protected final Semaphore semaphore;
+        protected volatile int requested;
+        /**
+         * Amount of permits acquired and not released yet.
+         */
+        protected volatile int acquired;
+
+        SemaphoreHolder(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        public Semaphore getSemaphore() {
+            return semaphore;
+        }
+
+        public int getRequested() {
+            return requested;
+        }
+
+        public int getAcquired() {
+            return acquired;
+        }
+
+        void acquired(int permits) {
+            ACQUIRED.addAndGet(this, permits);
+        }
+
+        /**
+         * @return {@code false} if less than {@code permits} permits are acquired
+         */
+        boolean released(int permits) {
+            int current;
+            do {
+                current = acquired;
+                if (current < permits) {
+                    return false;
+                }
+            } while (!ACQUIRED.compareAndSet(this, current, current - permits));
+            return true;
+        }
+
+        /**
+         * @return {@code true} if the holder is not referenced anymore
+         */
+        boolean add(int delta) {
+            return 0 == REQUESTED.addAndGet(this, delta);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.xblackcat.sjpu.util.function.SupplierEx;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces concurrent requests for the same key: the first caller (leader) performs the action while all the callers
+ * arrived during the action execution wait for it and receive the same result or the same exception. The key entry
+ * is removed as soon as the action is finished, so the next call for the key performs the action again.
+ * <p>
+ * All the callers for the same key are expected to pass equivalent actions: a waiting caller receives an exception
+ * thrown by the leader action even if its own action is declared with another exception type.
+ *
+ * @author xBlackCat
+ */
+public class SingleFlight<ID, R> {
+    protected final ConcurrentMap<ID, Flight<R>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Performs the action or waits for the result of the same key action which is already in progress.
+     *
+     * @param key    request key
+     * @param action action to perform
+     * @param <E>    the type of exception could be thrown by the action
+     * @return result of the action
+     * @throws InterruptedException if the current thread is interrupted while waiting for the result of another caller
+     */
+    public <E extends Throwable> R execute(ID key, SupplierEx<? extends R, E> action) throws E, InterruptedException {
+        Flight<R> flight = flights.get(key);
+        if (flight == null) {
+            final Flight<R> newFlight = new Flight<>();
+            flight = flights.putIfAbsent(key, newFlight);
+            if (flight == null) {
+                return lead(key, newFlight, action);
+            }
+        }
+
+        return flight.await();
+    }
+
+    /**
+     * Returns amount of keys with actions in progress.
+     */
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    private <E extends Throwable> R lead(ID key, Flight<R> flight, SupplierEx<? extends R, E> action) throws E {
+        final R result;
+        try {
+            result = action.get();
+        } catch (Throwable e) {
+            flights.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        flights.remove(key, flight);
+        flight.complete(result);
+        return result;
+    }
+
+    protected static final class Flight<R> extends CompletableFuture<R> {
+        private final Thread leader = Thread.currentThread();
+
+        private <E extends Throwable> R await() throws E, InterruptedException {
+            if (leader == Thread.currentThread()) {
+                throw new IllegalStateException("Recursive call for the same key");
+            }
+            try {
+                return get();
+            } catch (ExecutionException e) {
+                throw SingleFlight.<E>rethrow(e.getCause());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> E rethrow(Throwable e) throws E {
+        throw (E) e;
+    }
+}
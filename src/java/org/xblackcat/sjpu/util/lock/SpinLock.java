@@ -0,0 +1,209 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Unfair reentrant lock with a pluggable {@linkplain IWaitStrategy wait strategy}. An uncontended acquisition is
+ * a single CAS. A thread is parked only when the strategy decides so; a releasing thread wakes up one parked waiter.
+ * <p>
+ * For {@linkplain IWaitStrategy#isTimed() timed} strategies the lock keeps an exponentially weighted moving average of
+ * its hold time, so waiters could estimate how long the current owner is going to hold the lock.
+ * <p>
+ * Conditions are not supported.
+ *
+ * @author xBlackCat
+ */
+public class SpinLock implements Lock {
+    private static final AtomicReferenceFieldUpdater<SpinLock, Thread> OWNER =
+            AtomicReferenceFieldUpdater.newUpdater(SpinLock.class, Thread.class, "owner");
+
+    private final IWaitStrategy strategy;
+    private final boolean timed;
+    private final Queue<Thread> parked = new ConcurrentLinkedQueue<>();
+
+    private volatile Thread owner;
+    private volatile long acquiredAt;
+    private volatile long averageHoldNanos;
+    private int holdCount;
+
+    public SpinLock() {
+        this(IWaitStrategy.adaptive());
+    }
+
+    public SpinLock(IWaitStrategy strategy) {
+        this.strategy = strategy;
+        this.timed = strategy.isTimed();
+    }
+
+    @Override
+    public void lock() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                acquire(false, 0);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        acquire(true, 0);
+    }
+
+    @Override
+    public boolean tryLock() {
+        return tryAcquire(Thread.currentThread());
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        // Zero deadline means no timeout
+        final long deadline = System.nanoTime() + Math.max(unit.toNanos(time), 0);
+        return acquire(true, deadline == 0 ? 1 : deadline);
+    }
+
+    @Override
+    public void unlock() {
+        if (owner != Thread.currentThread()) {
+            throw new IllegalMonitorStateException();
+        }
+        if (--holdCount > 0) {
+            return;
+        }
+        if (timed) {
+            final long hold = System.nanoTime() - acquiredAt;
+            final long average = averageHoldNanos;
+            averageHoldNanos = average + ((hold - average) >> 3);
+        }
+        owner = null;
+
+        final Thread waiter = parked.peek();
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    @Override
+    public Condition newCondition() {
+        throw new UnsupportedOperationException("Conditions are not supported by " + getClass().getSimpleName());
+    }
+
+    public boolean isLocked() {
+        return owner != null;
+    }
+
+    public boolean isHeldByCurrentThread() {
+        return owner == Thread.currentThread();
+    }
+
+    /**
+     * Returns moving average of the lock hold time. The value is measured only for timed wait strategies.
+     */
+    public long getAverageHoldNanos() {
+        return averageHoldNanos;
+    }
+
+    private boolean tryAcquire(Thread current) {
+        final Thread o = owner;
+        if (o == current) {
+            holdCount++;
+            return true;
+        }
+        if (o == null && OWNER.compareAndSet(this, null, current)) {
+            holdCount = 1;
+            if (timed) {
+                acquiredAt = System.nanoTime();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param deadline acquisition deadline or {@code 0} to wait without a timeout
+     */
+    private boolean acquire(boolean interruptible, long deadline) throws InterruptedException {
+        final Thread current = Thread.currentThread();
+        for (int attempt = 0; ; attempt++) {
+            if (tryAcquire(current)) {
+                return true;
+            }
+            if (deadline != 0 && deadline - System.nanoTime() <= 0) {
+                return false;
+            }
+            if (interruptible && Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (strategy.idle(attempt, timed ? expectedWaitNanos() : -1)) {
+                return parkAndAcquire(current, deadline);
+            }
+        }
+    }
+
+    private boolean parkAndAcquire(Thread current, long deadline) throws InterruptedException {
+        parked.add(current);
+        boolean acquired = false;
+        try {
+            while (true) {
+                // The lock could be released before the thread is registered as a parked one
+                if (tryAcquire(current)) {
+                    acquired = true;
+                    return true;
+                }
+                if (deadline == 0) {
+                    LockSupport.park(this);
+                } else {
+                    final long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    LockSupport.parkNanos(this, remaining);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            parked.remove(current);
+            if (!acquired && owner == null) {
+                // Pass a possibly consumed wake up to the next waiter
+                final Thread waiter = parked.peek();
+                if (waiter != null) {
+                    LockSupport.unpark(waiter);
+                }
+            }
+        }
+    }
+
+    private long expectedWaitNanos() {
+        final long average = averageHoldNanos;
+        if (average == 0) {
+            return -1;
+        }
+        return Math.max(average - (System.nanoTime() - acquiredAt), 0);
+    }
+
+    @Override
+    public String toString() {
+        final Thread o = owner;
+        return super.toString() + (o == null ? "[Unlocked]" : "[Locked by thread " + o.getName() + "]");
+    }
+}
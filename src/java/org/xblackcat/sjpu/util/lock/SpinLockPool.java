@@ -0,0 +1,24 @@
+package org.xblackcat.sjpu.util.lock;
+
+/**
+ * Lock pool of {@linkplain SpinLock spin locks} which share the same {@linkplain IWaitStrategy wait strategy}. Suits
+ * for very short critical sections where parking a thread costs more than the section itself.
+ *
+ * @author xBlackCat
+ */
+public class SpinLockPool<ID> extends ConcurrentLockPool<ID> {
+    private final IWaitStrategy strategy;
+
+    public SpinLockPool() {
+        this(IWaitStrategy.adaptive());
+    }
+
+    public SpinLockPool(IWaitStrategy strategy) {
+        super(() -> new SpinLock(strategy));
+        this.strategy = strategy;
+    }
+
+    public IWaitStrategy getStrategy() {
+        return strategy;
+    }
+}
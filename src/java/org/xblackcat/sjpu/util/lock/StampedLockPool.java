@@ -0,0 +1,212 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+
+/**
+ * Pool of {@linkplain StampedLock}s associated with keys.
+ * <p>
+ * Read and write locks are taken on a reference-counted per-key holder like in {@linkplain ReadWriteLockPool}.
+ * Optimistic reads do not modify the pool at all: the stamp is taken from a fixed set of guard locks (stripes)
+ * instead of the key holder, so a holder could be freely evicted while optimistic readers validate their stamps.
+ * Every writer of a key makes a version step on the key stripe right after it gets the write lock, so
+ * {@linkplain #validate(Object, long)} fails for every optimistic read overlapped with a write. Writers of other
+ * keys mapped to the same stripe could also invalidate the stamp: the read should be retried or performed
+ * under the read lock then.
+ * <p>
+ * Usage example:
+ * <pre>{@code
+ * long stamp = pool.tryOptimisticRead(key);
+ * Value value = cache.get(key);
+ * if (!pool.validate(key, stamp)) {
+ *     stamp = pool.readLock(key);
+ *     try {
+ *         value = cache.get(key);
+ *     } finally {
+ *         pool.unlockRead(key, stamp);
+ *     }
+ * }
+ * }</pre>
+ *
+ * @author xBlackCat
+ */
+public class StampedLockPool<ID> {
+    protected final ConcurrentMap<ID, StampedLockHolder> lockPool = new ConcurrentHashMap<>();
+    protected final StampedLock[] guards;
+    protected final int mask;
+
+    private final BiFunction<ID, StampedLockHolder, StampedLockHolder> useHolder = (id, h) -> {
+        if (h == null) {
+            h = new StampedLockHolder();
+        }
+        h.increment();
+        return h;
+    };
+    private final BiFunction<ID, StampedLockHolder, StampedLockHolder> releaseHolder = (id, h) -> h.decrement() ? null : h;
+
+    public StampedLockPool() {
+        this(StripedLockPool.DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes amount of guard locks for optimistic reads. The value is rounded up to the nearest power of two.
+     */
+    public StampedLockPool(int stripes) {
+        if (stripes <= 0 || stripes > 1 << 30) {
+            throw new IllegalArgumentException("Invalid amount of stripes: " + stripes);
+        }
+        final int size = StripedLockPool.ceilingPowerOfTwo(stripes);
+
+        guards = new StampedLock[size];
+        mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            guards[i] = new StampedLock();
+        }
+    }
+
+    /**
+     * Returns a stamp that can later be validated, or zero if the key is exclusively locked.
+     *
+     * @see StampedLock#tryOptimisticRead()
+     */
+    public long tryOptimisticRead(ID key) {
+        final long stamp = guardFor(key).tryOptimisticRead();
+        if (stamp == 0) {
+            return 0;
+        }
+        final StampedLockHolder lockHolder = lockPool.get(key);
+        if (lockHolder != null && lockHolder.getLock().isWriteLocked()) {
+            return 0;
+        }
+        return stamp;
+    }
+
+    /**
+     * Returns {@code true} if the key has not been exclusively acquired since issuance of the given stamp.
+     *
+     * @param key   lock key
+     * @param stamp a stamp returned by {@linkplain #tryOptimisticRead(Object)}
+     * @see StampedLock#validate(long)
+     */
+    public boolean validate(ID key, long stamp) {
+        return stamp != 0 && guardFor(key).validate(stamp);
+    }
+
+    public long readLock(ID key) {
+        StampedLockHolder lockHolder = useLockFromPool(key);
+        try {
+            return lockHolder.getLock().readLock();
+        } catch (RuntimeException | Error e) {
+            releaseLockFromPool(key);
+            throw e;
+        }
+    }
+
+    /**
+     * @return a stamp that can be used to unlock or zero if the lock is not available
+     */
+    public long tryReadLock(ID key, long time, TimeUnit unit) throws InterruptedException {
+        StampedLockHolder lockHolder = useLockFromPool(key);
+        long stamp = 0;
+        try {
+            stamp = lockHolder.getLock().tryReadLock(time, unit);
+            return stamp;
+        } finally {
+            if (stamp == 0) {
+                releaseLockFromPool(key);
+            }
+        }
+    }
+
+    public void unlockRead(ID key, long stamp) {
+        getLockFromPool(key).getLock().unlockRead(stamp);
+        releaseLockFromPool(key);
+    }
+
+    public long writeLock(ID key) {
+        StampedLockHolder lockHolder = useLockFromPool(key);
+        final long stamp;
+        try {
+            stamp = lockHolder.getLock().writeLock();
+        } catch (RuntimeException | Error e) {
+            releaseLockFromPool(key);
+            throw e;
+        }
+        invalidateOptimisticReads(key);
+        return stamp;
+    }
+
+    /**
+     * @return a stamp that can be used to unlock or zero if the lock is not available
+     */
+    public long tryWriteLock(ID key, long time, TimeUnit unit) throws InterruptedException {
+        StampedLockHolder lockHolder = useLockFromPool(key);
+        long stamp = 0;
+        try {
+            stamp = lockHolder.getLock().tryWriteLock(time, unit);
+        } finally {
+            if (stamp == 0) {
+                releaseLockFromPool(key);
+            }
+        }
+        if (stamp != 0) {
+            invalidateOptimisticReads(key);
+        }
+        return stamp;
+    }
+
+    public void unlockWrite(ID key, long stamp) {
+        getLockFromPool(key).getLock().unlockWrite(stamp);
+        releaseLockFromPool(key);
+    }
+
+    protected StampedLock guardFor(ID key) {
+        return guards[StripedLockPool.spread(key == null ? 0 : key.hashCode()) & mask];
+    }
+
+    /**
+     * Steps the version of the key stripe. Should be performed after the key write lock is acquired: optimistic readers
+     * started earlier will fail the validation and the later ones will see the key write-locked.
+     */
+    protected void invalidateOptimisticReads(ID key) {
+        final StampedLock guard = guardFor(key);
+        guard.unlockWrite(guard.writeLock());
+    }
+
+    protected StampedLockHolder useLockFromPool(ID key) {
+        return lockPool.compute(key, useHolder);
+    }
+
+    protected void releaseLockFromPool(ID key) {
+        lockPool.computeIfPresent(key, releaseHolder);
+    }
+
+    protected StampedLockHolder getLockFromPool(ID key) {
+        final StampedLockHolder lockHolder = lockPool.get(key);
+        if (lockHolder == null) {
+            throw new IllegalStateException("Lock '" + key + "' is not acquired");
+        }
+        return lockHolder;
+    }
+
+    protected static final class StampedLockHolder {
+        protected final AtomicInteger requested = new AtomicInteger(0);
+        protected final StampedLock lock = new StampedLock();
+
+        public StampedLock getLock() {
+            return lock;
+        }
+
+        public void increment() {
+            requested.incrementAndGet();
+        }
+
+        public boolean decrement() {
+            return 0 == requested.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Lock pool with a fixed set of pre-allocated locks (stripes). A key is mapped to a stripe by its spread hash code, so
+ * {@linkplain #getLock(Object)} neither allocates nor touches any map. Different keys could share the same stripe and
+ * block each other.
+ *
+ * @author xBlackCat
+ */
+public class StripedLockPool<ID> implements ILockPool<ID> {
+    public static final int DEFAULT_STRIPES = 64;
+
+    protected final Lock[] stripes;
+    protected final int mask;
+
+    public StripedLockPool() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public StripedLockPool(int stripes) {
+        this(stripes, ReentrantLock::new);
+    }
+
+    public StripedLockPool(Supplier<Lock> lockProvider) {
+        this(DEFAULT_STRIPES, lockProvider);
+    }
+
+    /**
+     * @param stripes      amount of locks in the pool. The value is rounded up to the nearest power of two.
+     * @param lockProvider lock factory
+     */
+    public StripedLockPool(int stripes, Supplier<Lock> lockProvider) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Amount of stripes should be positive: " + stripes);
+        }
+        if (stripes > 1 << 30) {
+            throw new IllegalArgumentException("Too many stripes: " + stripes);
+        }
+        final int size = ceilingPowerOfTwo(stripes);
+
+        this.stripes = new Lock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = lockProvider.get();
+        }
+    }
+
+    @Override
+    public Lock getLock(ID key) {
+        return stripes[indexFor(key)];
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Keys are mapped to stripes first, so each stripe is locked only once in order of stripe indexes.
+     */
+    @Override
+    public IMultiLock lockAll(Collection<? extends ID> keys) {
+        final int[] indexes = stripeIndexes(keys);
+        int locked = 0;
+        try {
+            for (int idx : indexes) {
+                stripes[idx].lock();
+                locked++;
+            }
+        } catch (RuntimeException | Error e) {
+            unlockStripes(indexes, locked);
+            throw e;
+        }
+        return LockOrder.releaseOnce(() -> unlockStripes(indexes, indexes.length));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Keys are mapped to stripes first, so each stripe is locked only once in order of stripe indexes.
+     */
+    @Override
+    public IMultiLock tryLockAll(Collection<? extends ID> keys, long time, TimeUnit unit) throws InterruptedException {
+        final int[] indexes = stripeIndexes(keys);
+        final long deadline = System.nanoTime() + unit.toNanos(time);
+        int locked = 0;
+        try {
+            for (int idx : indexes) {
+                if (!stripes[idx].tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                locked++;
+            }
+        } finally {
+            if (locked < indexes.length) {
+                unlockStripes(indexes, locked);
+            }
+        }
+        if (locked < indexes.length) {
+            return null;
+        }
+        return LockOrder.releaseOnce(() -> unlockStripes(indexes, indexes.length));
+    }
+
+    public int getStripesAmount() {
+        return stripes.length;
+    }
+
+    protected int indexFor(ID key) {
+        return spread(key == null ? 0 : key.hashCode()) & mask;
+    }
+
+    private int[] stripeIndexes(Collection<? extends ID> keys) {
+        final int[] indexes = new int[keys.size()];
+        int i = 0;
+        for (ID key : keys) {
+            indexes[i++] = indexFor(key);
+        }
+        Arrays.sort(indexes);
+
+        int distinct = 0;
+        for (i = 0; i < indexes.length; i++) {
+            if (i == 0 || indexes[i] != indexes[distinct - 1]) {
+                indexes[distinct++] = indexes[i];
+            }
+        }
+        return distinct == indexes.length ? indexes : Arrays.copyOf(indexes, distinct);
+    }
+
+    private void unlockStripes(int[] indexes, int amount) {
+        while (amount-- > 0) {
+            stripes[indexes[amount]].unlock();
+        }
+    }
+
+    /**
+     * Returns the smallest power of two which is not less than the given positive value. The value should not exceed
+     * {@code 1 << 30}.
+     */
+    static int ceilingPowerOfTwo(int value) {
+        return value == 1 ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    /**
+     * Mixes all bits of the hash code to the lowest bits to make poor hash codes (e.g. sequential or aligned ones)
+     * be distributed evenly among the stripes.
+     */
+    static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,60 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Read-write lock pool with a fixed set of pre-allocated {@linkplain BigReaderLock big-reader locks}. A key is mapped to
+ * a lock by its spread hash code, so acquiring a read lock touches neither a map nor a shared reference counter and
+ * readers of a hot key scale with the amount of cores. Different keys could share the same lock, so locks provided
+ * to the pool should be reentrant: a thread holding read locks of two colliding keys acquires the same lock twice.
+ *
+ * @author xBlackCat
+ */
+public class StripedReadWriteLockPool<ID> implements IReadWriteLockPool<ID> {
+    public static final int DEFAULT_STRIPES = 64;
+
+    protected final ReadWriteLock[] stripes;
+    protected final int mask;
+
+    public StripedReadWriteLockPool() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public StripedReadWriteLockPool(int stripes) {
+        this(stripes, BigReaderLock::new);
+    }
+
+    /**
+     * @param stripes      amount of locks in the pool. The value is rounded up to the nearest power of two.
+     * @param lockProvider lock factory
+     */
+    public StripedReadWriteLockPool(int stripes, Supplier<ReadWriteLock> lockProvider) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Amount of stripes should be positive: " + stripes);
+        }
+        if (stripes > 1 << 30) {
+            throw new IllegalArgumentException("Too many stripes: " + stripes);
+        }
+        final int size = StripedLockPool.ceilingPowerOfTwo(stripes);
+
+        this.stripes = new ReadWriteLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = lockProvider.get();
+        }
+    }
+
+    @Override
+    public ReadWriteLock getReadWriteLock(ID key) {
+        return stripes[indexFor(key)];
+    }
+
+    public int getStripesAmount() {
+        return stripes.length;
+    }
+
+    protected int indexFor(ID key) {
+        return StripedLockPool.spread(key == null ? 0 : key.hashCode()) & mask;
+    }
+}
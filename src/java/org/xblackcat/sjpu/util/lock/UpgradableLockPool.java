@@ -0,0 +1,143 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+
+/**
+ * Pool of {@linkplain UpgradableReadWriteLock upgradable read-write locks}. Besides plain read and write locks
+ * the pool provides {@linkplain IUpgradableLock upgradable read locks}: a read-check-write cycle takes a single pool
+ * entry and the write access is gained without releasing the read access, so the checked state needs no
+ * re-validation.
+ *
+ * @author xBlackCat
+ */
+public class UpgradableLockPool<ID> extends ReadWriteLockPool<ID> {
+    public UpgradableLockPool() {
+        super(id -> new UpgradableReadWriteLock());
+    }
+
+    /**
+     * Returns upgradable read lock for the key. The returned object remembers the acquired holder, so it should be
+     * used by a single thread for a single acquisition at a time.
+     */
+    public IUpgradableLock getUpgradableLock(ID key) {
+        return new UpgradableLockWrapper(key);
+    }
+
+    private class UpgradableLockWrapper implements IUpgradableLock {
+        private final ID key;
+        private IUpgradableLock lock;
+
+        public UpgradableLockWrapper(ID key) {
+            this.key = key;
+        }
+
+        @Override
+        public void lock() {
+            final IUpgradableLock lock = use();
+            try {
+                lock.lock();
+            } catch (RuntimeException | Error e) {
+                releaseLockFromPool(key);
+                throw e;
+            }
+            this.lock = lock;
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            final IUpgradableLock lock = use();
+            boolean locked = false;
+            try {
+                lock.lockInterruptibly();
+                locked = true;
+            } finally {
+                if (!locked) {
+                    releaseLockFromPool(key);
+                }
+            }
+            this.lock = lock;
+        }
+
+        @Override
+        public boolean tryLock() {
+            final IUpgradableLock lock = use();
+            boolean locked = false;
+            try {
+                locked = lock.tryLock();
+            } finally {
+                if (!locked) {
+                    releaseLockFromPool(key);
+                }
+            }
+            if (locked) {
+                this.lock = lock;
+            }
+            return locked;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            final IUpgradableLock lock = use();
+            boolean locked = false;
+            try {
+                locked = lock.tryLock(time, unit);
+            } finally {
+                if (!locked) {
+                    releaseLockFromPool(key);
+                }
+            }
+            if (locked) {
+                this.lock = lock;
+            }
+            return locked;
+        }
+
+        @Override
+        public void unlock() {
+            // Lock should be released before the holder is evicted from the pool
+            acquired().unlock();
+            lock = null;
+            releaseLockFromPool(key);
+        }
+
+        @Override
+        public void upgrade() {
+            acquired().upgrade();
+        }
+
+        @Override
+        public boolean tryUpgrade(long time, TimeUnit unit) throws InterruptedException {
+            return acquired().tryUpgrade(time, unit);
+        }
+
+        @Override
+        public void downgrade() {
+            acquired().downgrade();
+        }
+
+        @Override
+        public boolean isUpgraded() {
+            return lock != null && lock.isUpgraded();
+        }
+
+        @Override
+        public Condition newCondition() {
+            return acquired().newCondition();
+        }
+
+        private IUpgradableLock use() {
+            if (lock != null) {
+                throw new IllegalStateException("Upgradable lock '" + key + "' is already acquired");
+            }
+            return ((UpgradableReadWriteLock) useLockFromPool(key).getLock()).upgradableLock();
+        }
+
+        private IUpgradableLock acquired() {
+            if (lock == null) {
+                throw new IllegalStateException("Lock '" + key + "' is not acquired");
+            }
+            return lock;
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-write lock with an additional {@linkplain IUpgradableLock upgradable read} mode. Compatibility of the modes:
+ * <pre>
+ *               read  upgradable  write
+ * read           +        +         -
+ * upgradable     +        -         -
+ * write          -        -         -
+ * </pre>
+ * The lock state is guarded by an internal monitor lock, waiting threads are woken up on every state change. The lock
+ * prefers writers: new read and upgradable locks are not granted while a writer waits, so writers could not be starved
+ * by a steady stream of readers. Read and upgradable locks are not reentrant, the write lock is. A thread holding the
+ * write or the upgradable lock could not acquire the read lock: the attempt fails with
+ * {@link IllegalMonitorStateException} instead of waiting forever. Conditions are not supported.
+ *
+ * @author xBlackCat
+ */
+public class UpgradableReadWriteLock implements ReadWriteLock {
+    private final ReentrantLock sync = new ReentrantLock();
+    private final Condition changed = sync.newCondition();
+    private final Lock readLock = new ReadLock();
+    private final Lock writeLock = new WriteLock();
+    private final IUpgradableLock upgradableLock = new UpgradableLock();
+
+    private int readers;
+    private Thread upgrader;
+    private Thread writer;
+    private int writeHolds;
+    private int waitingWriters;
+    private boolean upgradePending;
+
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    public IUpgradableLock upgradableLock() {
+        return upgradableLock;
+    }
+
+    public int getReadLockCount() {
+        sync.lock();
+        try {
+            return readers;
+        } finally {
+            sync.unlock();
+        }
+    }
+
+    /**
+     * Returns amount of threads waiting for the write lock.
+     */
+    public int getQueuedWriters() {
+        sync.lock();
+        try {
+            return waitingWriters;
+        } finally {
+            sync.unlock();
+        }
+    }
+
+    /**
+     * Checks if the lock state allows the current thread to proceed. Evaluated under the monitor lock.
+     */
+    private interface StatePredicate {
+        boolean test(Thread current);
+    }
+
+    private boolean canRead(Thread current) {
+        if (writer == current || upgrader == current) {
+            // The read lock would wait for the current thread itself
+            throw new IllegalMonitorStateException("Read lock could not be acquired by the write or upgradable lock holder");
+        }
+        return writer == null && !upgradePending && waitingWriters == 0;
+    }
+
+    private boolean canUpgradableRead(Thread current) {
+        return writer == null && upgrader == null && waitingWriters == 0;
+    }
+
+    private boolean canWrite(Thread current) {
+        return writer == current || writer == null && upgrader == null && readers == 0;
+    }
+
+    private boolean canUpgrade(Thread current) {
+        return readers == 0;
+    }
+
+    private void awaitUninterruptibly(StatePredicate predicate) {
+        final Thread current = Thread.currentThread();
+        while (!predicate.test(current)) {
+            changed.awaitUninterruptibly();
+        }
+    }
+
+    /**
+     * Waits until the state allows the operation.
+     *
+     * @param deadline waiting deadline or {@code 0} to wait without a timeout
+     * @return {@code false} if the waiting time elapsed
+     */
+    private boolean await(StatePredicate predicate, long deadline) throws InterruptedException {
+        final Thread current = Thread.currentThread();
+        while (!predicate.test(current)) {
+            if (deadline == 0) {
+                changed.await();
+            } else {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                changed.awaitNanos(remaining);
+            }
+        }
+        return true;
+    }
+
+    private static long deadline(long time, TimeUnit unit) {
+        final long deadline = System.nanoTime() + Math.max(unit.toNanos(time), 0);
+        // Zero deadline means no timeout
+        return deadline == 0 ? 1 : deadline;
+    }
+
+    private abstract class ModeLock implements Lock {
+        private final StatePredicate predicate;
+
+        protected ModeLock(StatePredicate predicate) {
+            this.predicate = predicate;
+        }
+
+        protected abstract void acquired(Thread current);
+
+        /**
+         * Notifies that the current thread starts or stops waiting for the lock. Called under the monitor lock.
+         */
+        protected void waiting(boolean started) {
+        }
+
+        /**
+         * Waits for the lock and acquires it. Should be called under the monitor lock.
+         *
+         * @param deadline waiting deadline or {@code 0} to wait without a timeout
+         * @return {@code false} if the waiting time elapsed
+         */
+        private boolean acquire(long deadline) throws InterruptedException {
+            final Thread current = Thread.currentThread();
+            if (!predicate.test(current)) {
+                waiting(true);
+                try {
+                    if (!await(predicate, deadline)) {
+                        return false;
+                    }
+                } finally {
+                    waiting(false);
+                }
+            }
+            acquired(current);
+            return true;
+        }
+
+        @Override
+        public void lock() {
+            sync.lock();
+            try {
+                final Thread current = Thread.currentThread();
+                if (!predicate.test(current)) {
+                    waiting(true);
+                    try {
+                        awaitUninterruptibly(predicate);
+                    } finally {
+                        waiting(false);
+                    }
+                }
+                acquired(current);
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            sync.lockInterruptibly();
+            try {
+                acquire(0);
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            sync.lock();
+            try {
+                final Thread current = Thread.currentThread();
+                if (!predicate.test(current)) {
+                    return false;
+                }
+                acquired(current);
+                return true;
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            final long deadline = deadline(time, unit);
+            if (!sync.tryLock(time, unit)) {
+                return false;
+            }
+            try {
+                return acquire(deadline);
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Conditions are not supported by " + getClass().getSimpleName());
+        }
+    }
+
+    private final class ReadLock extends ModeLock {
+        private ReadLock() {
+            super(UpgradableReadWriteLock.this::canRead);
+        }
+
+        @Override
+        protected void acquired(Thread current) {
+            readers++;
+        }
+
+        @Override
+        public void unlock() {
+            sync.lock();
+            try {
+                if (readers == 0) {
+                    throw new IllegalMonitorStateException();
+                }
+                if (--readers == 0) {
+                    changed.signalAll();
+                }
+            } finally {
+                sync.unlock();
+            }
+        }
+    }
+
+    private final class WriteLock extends ModeLock {
+        private WriteLock() {
+            super(UpgradableReadWriteLock.this::canWrite);
+        }
+
+        @Override
+        protected void acquired(Thread current) {
+            writer = current;
+            writeHolds++;
+        }
+
+        @Override
+        protected void waiting(boolean started) {
+            if (started) {
+                waitingWriters++;
+            } else if (--waitingWriters == 0) {
+                // Readers blocked by a writer which gave up could proceed
+                changed.signalAll();
+            }
+        }
+
+        @Override
+        public void unlock() {
+            sync.lock();
+            try {
+                final Thread current = Thread.currentThread();
+                if (writer != current) {
+                    throw new IllegalMonitorStateException();
+                }
+                if (upgrader == current && writeHolds == 1) {
+                    throw new IllegalMonitorStateException("Upgraded lock should be released by the upgradable lock");
+                }
+                if (--writeHolds == 0) {
+                    writer = null;
+                    changed.signalAll();
+                }
+            } finally {
+                sync.unlock();
+            }
+        }
+    }
+
+    private final class UpgradableLock extends ModeLock implements IUpgradableLock {
+        private UpgradableLock() {
+            super(UpgradableReadWriteLock.this::canUpgradableRead);
+        }
+
+        @Override
+        protected void acquired(Thread current) {
+            upgrader = current;
+        }
+
+        @Override
+        public void unlock() {
+            sync.lock();
+            try {
+                final Thread current = Thread.currentThread();
+                if (upgrader != current) {
+                    throw new IllegalMonitorStateException();
+                }
+                if (writer == current) {
+                    checkNestedWriteHolds();
+                    writer = null;
+                    writeHolds = 0;
+                }
+                upgrader = null;
+                changed.signalAll();
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        @Override
+        public void upgrade() {
+            sync.lock();
+            try {
+                checkUpgrader();
+                upgradePending = true;
+                try {
+                    awaitUninterruptibly(UpgradableReadWriteLock.this::canUpgrade);
+                } finally {
+                    upgradePending = false;
+                    changed.signalAll();
+                }
+                writer = upgrader;
+                writeHolds = 1;
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        @Override
+        public boolean tryUpgrade(long time, TimeUnit unit) throws InterruptedException {
+            final long deadline = deadline(time, unit);
+            sync.lock();
+            try {
+                checkUpgrader();
+                upgradePending = true;
+                try {
+                    if (!await(UpgradableReadWriteLock.this::canUpgrade, deadline)) {
+                        return false;
+                    }
+                } finally {
+                    // Readers blocked by the pending upgrade could proceed if the upgrade is failed
+                    upgradePending = false;
+                    changed.signalAll();
+                }
+                writer = upgrader;
+                writeHolds = 1;
+                return true;
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        @Override
+        public void downgrade() {
+            sync.lock();
+            try {
+                final Thread current = Thread.currentThread();
+                if (upgrader != current || writer != current) {
+                    throw new IllegalMonitorStateException();
+                }
+                checkNestedWriteHolds();
+                writer = null;
+                writeHolds = 0;
+                changed.signalAll();
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        @Override
+        public boolean isUpgraded() {
+            sync.lock();
+            try {
+                return writer != null && writer == upgrader;
+            } finally {
+                sync.unlock();
+            }
+        }
+
+        private void checkNestedWriteHolds() {
+            if (writeHolds > 1) {
+                throw new IllegalMonitorStateException("Nested write locks should be released first");
+            }
+        }
+
+        private void checkUpgrader() {
+            final Thread current = Thread.currentThread();
+            if (upgrader != current) {
+                throw new IllegalMonitorStateException();
+            }
+            if (writer == current) {
+                throw new IllegalStateException("The lock is already upgraded");
+            }
+        }
+    }
+}
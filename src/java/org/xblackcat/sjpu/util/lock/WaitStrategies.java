@@ -0,0 +1,76 @@
+package org.xblackcat.sjpu.util.lock;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Implementations of the parametrized {@linkplain IWaitStrategy wait strategies}.
+ *
+ * @author xBlackCat
+ */
+final class WaitStrategies {
+    private WaitStrategies() {
+    }
+
+    static final class SpinThenYield implements IWaitStrategy {
+        private final int spins;
+
+        SpinThenYield(int spins) {
+            if (spins < 0) {
+                throw new IllegalArgumentException("Amount of spins should not be negative: " + spins);
+            }
+            this.spins = spins;
+        }
+
+        @Override
+        public boolean idle(int attempt, long expectedWaitNanos) {
+            if (attempt >= spins) {
+                Thread.yield();
+            }
+            return false;
+        }
+    }
+
+    static final class Backoff implements IWaitStrategy {
+        private final long minNanos;
+        private final long maxNanos;
+
+        Backoff(long minNanos, long maxNanos) {
+            if (minNanos <= 0 || maxNanos < minNanos) {
+                throw new IllegalArgumentException("Invalid backoff range: [" + minNanos + ", " + maxNanos + "]");
+            }
+            this.minNanos = minNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        @Override
+        public boolean idle(int attempt, long expectedWaitNanos) {
+            final int shift = Math.min(attempt, 62 - (63 - Long.numberOfLeadingZeros(minNanos)));
+            LockSupport.parkNanos(this, Math.min(minNanos << shift, maxNanos));
+            return false;
+        }
+    }
+
+    static final class Adaptive implements IWaitStrategy {
+        private final long spinThresholdNanos;
+        private final int maxSpins;
+
+        Adaptive(long spinThresholdNanos, int maxSpins) {
+            if (spinThresholdNanos < 0 || maxSpins < 0) {
+                throw new IllegalArgumentException("Invalid adaptive strategy parameters");
+            }
+            this.spinThresholdNanos = spinThresholdNanos;
+            this.maxSpins = maxSpins;
+        }
+
+        @Override
+        public boolean idle(int attempt, long expectedWaitNanos) {
+            // Spin a little if there is no statistics yet
+            return attempt >= maxSpins || expectedWaitNanos > spinThresholdNanos;
+        }
+
+        @Override
+        public boolean isTimed() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.xblackcat.sjpu.util.thread;
+
+import org.xblackcat.sjpu.util.function.RunnableEx;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.function.BiFunction;
+
+/**
+ * Executes tasks of the same key one by one in order of submission while tasks of different keys are executed
+ * in parallel by the delegate executor. No thread is blocked while a task is waiting for its turn: tasks of a key are
+ * chained in a queue which is served by a single runner submitted to the delegate executor. The runner executes
+ * the queued tasks one by one in a loop, so the stack depth does not depend on the queue length even with
+ * a same-thread delegate. The queue of a key is evicted as soon as it is drained.
+ * <p>
+ * If the delegate executor fails to accept the runner (throws a {@linkplain RuntimeException}) the task is completed
+ * exceptionally with the thrown exception and the next queued task of the key is scheduled.
+ *
+ * @author xBlackCat
+ */
+public class KeyedSerialExecutor<ID> {
+    protected final Executor delegate;
+    protected final ConcurrentMap<ID, TaskQueue> queues = new ConcurrentHashMap<>();
+
+    private final BiFunction<ID, TaskQueue, TaskQueue> pollNext = (id, q) -> {
+        q.current = q.tasks.poll();
+        return q.current == null ? null : q;
+    };
+
+    public KeyedSerialExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Schedules the task for execution after all the previously submitted tasks of the key are finished.
+     *
+     * @param key  task key
+     * @param task task to execute
+     * @return future which is completed after the task execution. If the task fails the future is completed
+     * exceptionally with the thrown exception.
+     */
+    public <E extends Throwable> CompletableFuture<Void> execute(ID key, RunnableEx<E> task) {
+        final Task t = new Task(task);
+        final TaskQueue queue = queues.compute(key, (id, q) -> {
+            if (q == null) {
+                t.leading = true;
+                return new TaskQueue(id);
+            }
+            q.tasks.add(t);
+            return q;
+        });
+        if (t.leading) {
+            schedule(queue, t);
+        }
+        return t.result;
+    }
+
+    /**
+     * Returns amount of keys which have tasks queued or running.
+     */
+    public int getActiveKeys() {
+        return queues.size();
+    }
+
+    private void schedule(TaskQueue queue, Task task) {
+        while (task != null) {
+            // Only the queue runner is able to modify the field
+            queue.current = task;
+            try {
+                delegate.execute(queue);
+                return;
+            } catch (RuntimeException e) {
+                task.result.completeExceptionally(e);
+                task = next(queue);
+            }
+        }
+    }
+
+    private Task next(TaskQueue queue) {
+        final TaskQueue q = queues.computeIfPresent(queue.key, pollNext);
+        return q == null ? null : q.current;
+    }
+
+    protected final class TaskQueue implements Runnable {
+        protected final ID key;
+        protected final Queue<Task> tasks = new ArrayDeque<>();
+        private Task current;
+
+        private TaskQueue(ID key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            Task task = current;
+            while (task != null) {
+                // The task never throws: its failure completes the task future
+                task.run();
+                task = next(this);
+            }
+        }
+    }
+
+    private static final class Task {
+        private final RunnableEx<?> action;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+        private boolean leading;
+
+        private Task(RunnableEx<?> action) {
+            this.action = action;
+        }
+
+        private void run() {
+            try {
+                action.run();
+                result.complete(null);
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
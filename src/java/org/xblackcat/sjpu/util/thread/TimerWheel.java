@@ -0,0 +1,263 @@
+package org.xblackcat.sjpu.util.thread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timer wheel: a single thread serves all the scheduled timeouts with tick precision. Scheduling
+ * and cancellation are cheap, so the wheel suits well for a large amount of short timeouts which are usually cancelled
+ * before they expire (e.g. lock leases). Cancelled timeouts are unlinked from their buckets on the next tick, so they
+ * are not kept until their deadlines. Expired tasks are executed by the wheel thread and should be short.
+ *
+ * @author xBlackCat
+ */
+public class TimerWheel implements AutoCloseable {
+    private final long tickNanos;
+    private final int mask;
+    private final Bucket[] buckets;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startTime;
+    private volatile boolean running = true;
+    private long tick;
+
+    public static TimerWheel getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    public TimerWheel(String name) {
+        this(name, 10, TimeUnit.MILLISECONDS, 512);
+    }
+
+    /**
+     * @param name      name of the wheel thread
+     * @param tick      duration of a tick
+     * @param unit      time unit of the {@code tick} argument
+     * @param wheelSize amount of buckets in the wheel. The value is rounded up to the nearest power of two.
+     */
+    public TimerWheel(String name, long tick, TimeUnit unit, int wheelSize) {
+        if (tick <= 0) {
+            throw new IllegalArgumentException("Tick duration should be positive: " + tick);
+        }
+        if (wheelSize <= 0 || wheelSize > 1 << 20) {
+            throw new IllegalArgumentException("Invalid wheel size: " + wheelSize);
+        }
+        final int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+
+        tickNanos = unit.toNanos(tick);
+        mask = size - 1;
+        buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
+        }
+
+        startTime = System.nanoTime();
+        worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Schedules the task to be executed by the wheel thread after the given delay.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timer wheel is stopped");
+        }
+        final Timeout timeout = new Timeout(this, task, System.nanoTime() + unit.toNanos(delay));
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the wheel thread. Pending timeouts are never expired.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        final List<Timeout> expired = new ArrayList<>();
+        while (running) {
+            final long deadline = startTime + (tick + 1) * tickNanos;
+            long now;
+            while ((now = System.nanoTime()) - deadline < 0) {
+                LockSupport.parkNanos(this, deadline - now);
+                if (!running) {
+                    return;
+                }
+            }
+
+            Timeout t;
+            while ((t = scheduled.poll()) != null) {
+                if (!t.isCancelled()) {
+                    place(t);
+                }
+            }
+            while ((t = cancelled.poll()) != null) {
+                if (t.bucket != null) {
+                    t.bucket.remove(t);
+                }
+            }
+
+            final Bucket bucket = buckets[(int) (tick & mask)];
+            t = bucket.head;
+            bucket.head = bucket.tail = null;
+            while (t != null) {
+                final Timeout next = t.next;
+                t.bucket = null;
+                t.prev = t.next = null;
+                switch (t.check(now)) {
+                    case Timeout.PENDING:
+                        place(t);
+                        break;
+                    case Timeout.EXPIRED:
+                        expired.add(t);
+                        break;
+                    default:
+                        // Cancelled
+                }
+                t = next;
+            }
+            tick++;
+
+            for (Timeout timeout : expired) {
+                try {
+                    timeout.task.run();
+                } catch (Throwable e) {
+                    final Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    /**
+     * Puts the timeout to a bucket of its deadline or to the next processed bucket if the deadline is already passed.
+     */
+    private void place(Timeout timeout) {
+        final long ticks = Math.max((timeout.getDeadline() - startTime) / tickNanos, tick + 1);
+        buckets[(int) (ticks & mask)].add(timeout);
+    }
+
+    /**
+     * Doubly-linked list of timeouts. Accessed by the wheel thread only.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout t) {
+            t.bucket = this;
+            t.prev = tail;
+            if (tail == null) {
+                head = t;
+            } else {
+                tail.next = t;
+            }
+            tail = t;
+        }
+
+        private void remove(Timeout t) {
+            if (t.prev == null) {
+                head = t.next;
+            } else {
+                t.prev.next = t.next;
+            }
+            if (t.next == null) {
+                tail = t.prev;
+            } else {
+                t.next.prev = t.prev;
+            }
+            t.bucket = null;
+            t.prev = t.next = null;
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final TimerWheel wheel;
+        private final Runnable task;
+        private long deadline;
+        private int state = PENDING;
+
+        // Bucket links are managed by the wheel thread only
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimerWheel wheel, Runnable task, long deadline) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task execution.
+         *
+         * @return {@code false} if the task is already expired or cancelled
+         */
+        public boolean cancel() {
+            synchronized (this) {
+                if (state != PENDING) {
+                    return false;
+                }
+                state = CANCELLED;
+            }
+            // The wheel thread unlinks the timeout from its bucket
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        /**
+         * Moves the deadline of the timeout to the given delay from now. The wheel checks the timeout at its previous
+         * deadline first, so a shortened timeout is not expired earlier than it was originally scheduled.
+         *
+         * @return {@code false} if the task is already expired or cancelled
+         */
+        public synchronized boolean reschedule(long delay, TimeUnit unit) {
+            if (state != PENDING) {
+                return false;
+            }
+            deadline = System.nanoTime() + unit.toNanos(delay);
+            return true;
+        }
+
+        public synchronized boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        public synchronized boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        private synchronized long getDeadline() {
+            return deadline;
+        }
+
+        private synchronized int check(long now) {
+            if (state == PENDING && deadline - now <= 0) {
+                state = EXPIRED;
+            }
+            return state;
+        }
+    }
+
+    private static final class DefaultHolder {
+        private static final TimerWheel INSTANCE = new TimerWheel("DefaultTimerWheel");
+    }
+}
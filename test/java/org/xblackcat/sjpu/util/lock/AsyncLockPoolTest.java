@@ -0,0 +1,70 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * @author xBlackCat
+ */
+public class AsyncLockPoolTest {
+    @Test
+    public void handOverTest() {
+        AsyncLockPool<Integer> pool = new AsyncLockPool<>();
+
+        final CompletableFuture<AsyncLockPool.LockToken<Integer>> first = pool.acquire(10);
+        final CompletableFuture<AsyncLockPool.LockToken<Integer>> second = pool.acquire(10);
+        final CompletableFuture<AsyncLockPool.LockToken<Integer>> third = pool.acquire(10);
+        final CompletableFuture<AsyncLockPool.LockToken<Integer>> fourth = pool.acquire(10);
+        final CompletableFuture<AsyncLockPool.LockToken<Integer>> other = pool.acquire(20);
+
+        Assert.assertTrue(first.isDone());
+        Assert.assertFalse(second.isDone());
+        Assert.assertTrue(other.isDone());
+        Assert.assertNull(pool.tryAcquire(10));
+        Assert.assertEquals(2, pool.lockPool.size());
+
+        third.cancel(false);
+
+        first.join().release();
+        first.join().release();
+        Assert.assertTrue(second.isDone());
+        Assert.assertFalse(fourth.isDone());
+
+        second.join().release();
+        Assert.assertTrue(fourth.isDone());
+
+        fourth.join().close();
+        other.join().close();
+        Assert.assertEquals(0, pool.lockPool.size());
+
+        final AsyncLockPool.LockToken<Integer> token = pool.tryAcquire(10);
+        Assert.assertNotNull(token);
+        Assert.assertEquals(10, token.getKey().intValue());
+        token.release();
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void longChainTest() {
+        AsyncLockPool<Integer> pool = new AsyncLockPool<>();
+        final AsyncLockPool.LockToken<Integer> first = pool.tryAcquire(10);
+
+        final int[] counter = new int[1];
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 100000; i++) {
+            // Each waiter releases the lock inside its dependent stage
+            last = pool.acquire(10).thenAccept(token -> {
+                counter[0]++;
+                token.release();
+            });
+        }
+
+        first.release();
+        Assert.assertTrue(last.isDone());
+        Assert.assertFalse(last.isCompletedExceptionally());
+        Assert.assertEquals(100000, counter[0]);
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+}
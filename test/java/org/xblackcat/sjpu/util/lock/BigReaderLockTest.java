@@ -0,0 +1,180 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * @author xBlackCat
+ */
+public class BigReaderLockTest {
+    @Test
+    public void exclusionTest() throws Exception {
+        BigReaderLock lock = new BigReaderLock(4);
+        Assert.assertEquals(4, lock.getStripesAmount());
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            lock.readLock().lock();
+            executor.submit(() -> {
+                Assert.assertTrue(lock.readLock().tryLock());
+                Assert.assertEquals(2, lock.getReadLockCount());
+                lock.readLock().unlock();
+                Assert.assertFalse(lock.writeLock().tryLock());
+            }).get(1, TimeUnit.MINUTES);
+            lock.readLock().unlock();
+            Assert.assertEquals(0, lock.getReadLockCount());
+
+            lock.writeLock().lock();
+            lock.writeLock().lock();
+            lock.readLock().lock();
+            lock.readLock().unlock();
+            Assert.assertFalse(executor.submit(() -> lock.readLock().tryLock()).get(1, TimeUnit.MINUTES));
+            lock.writeLock().unlock();
+            Assert.assertTrue(lock.isWriteLocked());
+            lock.writeLock().unlock();
+            Assert.assertFalse(lock.isWriteLocked());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void writerProgressTest() throws Exception {
+        StripedReadWriteLockPool<Integer> pool = new StripedReadWriteLockPool<>(1);
+        final ReadWriteLock lock = pool.getReadWriteLock(10);
+        final AtomicBoolean stop = new AtomicBoolean();
+        final int[] value = new int[2];
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final List<Future<?>> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            readers.add(executor.submit(() -> {
+                while (!stop.get()) {
+                    lock.readLock().lock();
+                    try {
+                        Assert.assertEquals(value[0], value[1]);
+                    } finally {
+                        lock.readLock().unlock();
+                    }
+                }
+            }));
+        }
+
+        for (int i = 0; i < 1000; i++) {
+            Assert.assertTrue(lock.writeLock().tryLock(10, TimeUnit.SECONDS));
+            try {
+                value[0]++;
+                value[1]++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        stop.set(true);
+        executor.shutdown();
+        for (Future<?> reader : readers) {
+            reader.get(1, TimeUnit.MINUTES);
+        }
+        Assert.assertEquals(1000, value[0]);
+    }
+
+    @Test
+    public void collidingKeysTest() throws Exception {
+        // Both keys are mapped to the single lock of the pool
+        StripedReadWriteLockPool<Integer> pool = new StripedReadWriteLockPool<>(1);
+        final BigReaderLock lock = (BigReaderLock) pool.getReadWriteLock(10);
+        Assert.assertSame(lock, pool.getReadWriteLock(20));
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            pool.getReadWriteLock(10).readLock().lock();
+            final Future<?> writer = executor.submit(() -> {
+                lock.writeLock().lock();
+                lock.writeLock().unlock();
+            });
+            awaitWriter(lock);
+
+            // Nested read acquisitions do not wait for the queued writer
+            pool.getReadWriteLock(20).readLock().lock();
+            Assert.assertTrue(pool.getReadWriteLock(20).readLock().tryLock());
+            Assert.assertTrue(pool.getReadWriteLock(20).readLock().tryLock(0, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(4, lock.getReadLockCount());
+            Assert.assertFalse(writer.isDone());
+
+            for (int i = 0; i < 3; i++) {
+                pool.getReadWriteLock(20).readLock().unlock();
+            }
+            pool.getReadWriteLock(10).readLock().unlock();
+            writer.get(1, TimeUnit.MINUTES);
+            Assert.assertEquals(0, lock.getReadLockCount());
+        } finally {
+            executor.shutdown();
+        }
+
+        try {
+            lock.readLock().unlock();
+            Assert.fail();
+        } catch (IllegalMonitorStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void interruptedWriterTest() throws Exception {
+        BigReaderLock lock = new BigReaderLock(4);
+        final AtomicReference<Thread> writerThread = new AtomicReference<>();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            lock.readLock().lock();
+            Future<Boolean> writer = executor.submit(() -> {
+                writerThread.set(Thread.currentThread());
+                try {
+                    lock.writeLock().lockInterruptibly();
+                } catch (InterruptedException e) {
+                    return true;
+                }
+                lock.writeLock().unlock();
+                return false;
+            });
+            awaitWriter(lock);
+            writerThread.get().interrupt();
+            Assert.assertTrue(writer.get(1, TimeUnit.MINUTES));
+            Assert.assertFalse(lock.isWriteLocked());
+
+            // Uninterruptible writer keeps waiting and restores the interruption
+            writer = executor.submit(() -> {
+                lock.writeLock().lock();
+                try {
+                    return Thread.interrupted();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+            awaitWriter(lock);
+            writerThread.get().interrupt();
+            Thread.sleep(20);
+            Assert.assertFalse(writer.isDone());
+            lock.readLock().unlock();
+            Assert.assertTrue(writer.get(1, TimeUnit.MINUTES));
+            Assert.assertFalse(lock.isWriteLocked());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void awaitWriter(BigReaderLock lock) throws InterruptedException {
+        while (!lock.isWriteLocked()) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author xBlackCat
+ */
+public class ConcurrentLockPoolTest {
+    @Test
+    public void extendedTest() {
+        ConcurrentLockPool<Integer> pool = new ConcurrentLockPool<>();
+
+        Assert.assertEquals(0, pool.lockPool.size());
+
+        final Lock lock = pool.getLock(10);
+        Assert.assertEquals(0, pool.lockPool.size());
+
+        lock.lock();
+        Assert.assertEquals(1, pool.lockPool.size());
+        Assert.assertEquals(1, pool.lockPool.get(10).getRequested());
+
+        // Nested acquisition is counted by the current thread only
+        lock.lock();
+        Assert.assertEquals(1, pool.lockPool.size());
+        Assert.assertEquals(1, pool.lockPool.get(10).getRequested());
+
+        lock.unlock();
+        Assert.assertEquals(1, pool.lockPool.size());
+        Assert.assertEquals(1, pool.lockPool.get(10).getRequested());
+
+        lock.unlock();
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void failedTryLockTest() throws Exception {
+        ConcurrentLockPool<Integer> pool = new ConcurrentLockPool<>();
+
+        final Lock lock = pool.getLock(10);
+        lock.lock();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Assert.assertFalse(executor.submit(() -> pool.getLock(10).tryLock()).get(1, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(1, pool.lockPool.get(10).getRequested());
+        lock.unlock();
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void withLockTest() throws Exception {
+        ConcurrentLockPool<Integer> pool = new ConcurrentLockPool<>();
+
+        Assert.assertEquals("1", pool.withLock(10, () -> String.valueOf(pool.lockPool.get(10).getRequested())));
+        Assert.assertEquals(2, pool.withLockAsInt(10, () -> pool.withLockAsInt(20, pool.lockPool::size)));
+        Assert.assertEquals(0, pool.lockPool.size());
+
+        try {
+            pool.withLock(10, () -> {
+                throw new IOException("Test");
+            });
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("Test", e.getMessage());
+        }
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void recyclingTest() {
+        ConcurrentLockPool<Integer> pool = new ConcurrentLockPool<>(ReentrantLock::new, 4);
+
+        pool.lock(10);
+        final ConcurrentLockPool.LockHolder holder = pool.lockPool.get(10);
+        pool.unlock(10);
+        Assert.assertEquals(0, pool.lockPool.size());
+
+        pool.lock(20);
+        Assert.assertSame(holder, pool.lockPool.get(20));
+        Assert.assertEquals(1, holder.getRequested());
+
+        // A condition could switch to another key once its lock is recycled
+        try {
+            pool.getLock(20).newCondition();
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+            // Expected
+        }
+        pool.unlock(20);
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void foreignUnlockTest() throws Exception {
+        ConcurrentLockPool<Integer> pool = new ConcurrentLockPool<>(ReentrantLock::new, 4);
+
+        pool.lock(10);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                try {
+                    pool.unlock(10);
+                    Assert.fail();
+                } catch (IllegalStateException e) {
+                    // Expected
+                }
+            }).get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, pool.lockPool.get(10).getRequested());
+
+        pool.unlock(10);
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void multiThreadTest() throws InterruptedException {
+        ConcurrentLockPool<Integer> pool = new ConcurrentLockPool<>();
+        final int[] counters = new int[4];
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    final int key = j % counters.length;
+                    final Lock lock = pool.getLock(key);
+                    lock.lock();
+                    try {
+                        counters[key]++;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        for (int c : counters) {
+            Assert.assertEquals(20000, c);
+        }
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+}
@@ -0,0 +1,94 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author xBlackCat
+ */
+public class DeadlockDetectingLockPoolTest {
+    @Test
+    public void breakDeadlockTest() throws InterruptedException {
+        final List<DeadlockException> reported = new CopyOnWriteArrayList<>();
+        DeadlockDetectingLockPool<String> pool =
+                new DeadlockDetectingLockPool<>(true, reported::add, 10, TimeUnit.MILLISECONDS);
+
+        final CountDownLatch locked = new CountDownLatch(2);
+        final AtomicInteger broken = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+
+        Thread t1 = new Thread(() -> lockPair(pool, "a", "b", locked, broken, completed));
+        Thread t2 = new Thread(() -> lockPair(pool, "b", "a", locked, broken, completed));
+        t1.start();
+        t2.start();
+        t1.join(TimeUnit.SECONDS.toMillis(10));
+        t2.join(TimeUnit.SECONDS.toMillis(10));
+
+        Assert.assertFalse(t1.isAlive() || t2.isAlive());
+        // Only the thread with the smallest id is aborted
+        Assert.assertEquals(1, broken.get());
+        Assert.assertEquals(1, completed.get());
+        Assert.assertEquals(1, reported.size());
+        Assert.assertEquals(Math.min(t1.getId(), t2.getId()), reported.get(0).getThreads().get(0).getId());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("a", "b")), new HashSet<>(reported.get(0).getKeys()));
+        Assert.assertEquals(0, pool.getWaitingThreads());
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void noDeadlockTest() throws InterruptedException {
+        final List<DeadlockException> reported = new CopyOnWriteArrayList<>();
+        DeadlockDetectingLockPool<String> pool =
+                new DeadlockDetectingLockPool<>(true, reported::add, 1, TimeUnit.MILLISECONDS);
+
+        pool.lock("a");
+        Thread t = new Thread(() -> {
+            pool.lock("a");
+            pool.unlock("a");
+        });
+        t.start();
+        while (pool.getWaitingThreads() < 1) {
+            Thread.sleep(1);
+        }
+        // Let the waiter look for cycles several times
+        Thread.sleep(20);
+        Assert.assertEquals(1, pool.getWaitingThreads());
+        pool.unlock("a");
+        t.join();
+
+        Assert.assertTrue(reported.isEmpty());
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    private static void lockPair(
+            DeadlockDetectingLockPool<String> pool,
+            String first,
+            String second,
+            CountDownLatch locked,
+            AtomicInteger broken,
+            AtomicInteger completed
+    ) {
+        pool.lock(first);
+        try {
+            locked.countDown();
+            locked.await();
+            pool.lock(second);
+            pool.unlock(second);
+            completed.incrementAndGet();
+        } catch (DeadlockException e) {
+            broken.incrementAndGet();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } finally {
+            pool.unlock(first);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.*;
+
+/**
+ * @author xBlackCat
+ */
+public class HierarchicalLockPoolTest {
+    @Test
+    public void compatibilityTest() {
+        Assert.assertTrue(HierarchicalLockPool.Mode.IS.isCompatible(HierarchicalLockPool.Mode.S));
+        Assert.assertTrue(HierarchicalLockPool.Mode.IX.isCompatible(HierarchicalLockPool.Mode.IX));
+        Assert.assertFalse(HierarchicalLockPool.Mode.IX.isCompatible(HierarchicalLockPool.Mode.S));
+        Assert.assertFalse(HierarchicalLockPool.Mode.S.isCompatible(HierarchicalLockPool.Mode.X));
+        Assert.assertFalse(HierarchicalLockPool.Mode.X.isCompatible(HierarchicalLockPool.Mode.IS));
+    }
+
+    @Test
+    public void hierarchyTest() throws Exception {
+        // "collection/item" keys: parent of an item is the collection
+        HierarchicalLockPool<String> pool = new HierarchicalLockPool<>(
+                key -> key.indexOf('/') < 0 ? null : key.substring(0, key.indexOf('/'))
+        );
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            pool.lock("c/1");
+            Assert.assertEquals(2, pool.lockPool.size());
+            Assert.assertEquals(1, pool.lockPool.get("c").getHeld(HierarchicalLockPool.Mode.IX));
+
+            // Another item of the same collection could be locked concurrently
+            Assert.assertTrue(executor.submit(() -> {
+                if (pool.tryLock("c/2", 0, TimeUnit.MILLISECONDS)) {
+                    pool.unlock("c/2");
+                    return true;
+                }
+                return false;
+            }).get(1, TimeUnit.MINUTES));
+            // The same item or the whole collection could not be locked
+            Assert.assertFalse(executor.submit(() -> pool.tryLock("c/1", 10, TimeUnit.MILLISECONDS)).get(1, TimeUnit.MINUTES));
+            Assert.assertFalse(executor.submit(
+                    () -> pool.tryLock("c", HierarchicalLockPool.Mode.S, 10, TimeUnit.MILLISECONDS)
+            ).get(1, TimeUnit.MINUTES));
+            Assert.assertEquals(2, pool.lockPool.size());
+
+            pool.unlock("c/1");
+            Assert.assertEquals(0, pool.lockPool.size());
+
+            pool.lock("c", HierarchicalLockPool.Mode.S);
+            Assert.assertFalse(executor.submit(() -> pool.tryLock("c/1", 10, TimeUnit.MILLISECONDS)).get(1, TimeUnit.MINUTES));
+            Assert.assertTrue(executor.submit(() -> {
+                if (pool.tryLock("c/1", HierarchicalLockPool.Mode.S, 0, TimeUnit.MILLISECONDS)) {
+                    pool.unlock("c/1", HierarchicalLockPool.Mode.S);
+                    return true;
+                }
+                return false;
+            }).get(1, TimeUnit.MINUTES));
+            pool.unlock("c", HierarchicalLockPool.Mode.S);
+            Assert.assertEquals(0, pool.lockPool.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void collectionWaiterTest() throws Exception {
+        HierarchicalLockPool<String> pool = new HierarchicalLockPool<>(
+                key -> key.indexOf('/') < 0 ? null : key.substring(0, key.indexOf('/'))
+        );
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            pool.lock("c/1");
+            final Future<Boolean> collection = executor.submit(() -> {
+                pool.lock("c", HierarchicalLockPool.Mode.S);
+                pool.unlock("c", HierarchicalLockPool.Mode.S);
+                return true;
+            });
+            while (pool.lockPool.get("c").getWaiting(HierarchicalLockPool.Mode.S) < 1) {
+                Thread.sleep(1);
+            }
+
+            // New item operations wait for the queued collection operation
+            Assert.assertFalse(executor.submit(() -> pool.tryLock("c/2", 10, TimeUnit.MILLISECONDS)).get(1, TimeUnit.MINUTES));
+            Assert.assertFalse(executor.submit(() -> pool.getLock("c/2").tryLock()).get(1, TimeUnit.MINUTES));
+            // Compatible intentions are still granted
+            Assert.assertTrue(executor.submit(() -> {
+                if (pool.tryLock("c/3", HierarchicalLockPool.Mode.S, 0, TimeUnit.MILLISECONDS)) {
+                    pool.unlock("c/3", HierarchicalLockPool.Mode.S);
+                    return true;
+                }
+                return false;
+            }).get(1, TimeUnit.MINUTES));
+            // The thread holding the collection in an intention mode is not blocked
+            Assert.assertTrue(pool.tryLock("c/2", 0, TimeUnit.MILLISECONDS));
+            Assert.assertFalse(collection.isDone());
+
+            pool.unlock("c/2");
+            pool.unlock("c/1");
+            Assert.assertTrue(collection.get(1, TimeUnit.MINUTES));
+            Assert.assertEquals(0, pool.lockPool.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void interruptedTryLockTest() {
+        HierarchicalLockPool<String> pool = new HierarchicalLockPool<>(key -> null);
+
+        Thread.currentThread().interrupt();
+        try {
+            // Untimed tryLock ignores the interruption
+            Assert.assertTrue(pool.getLock("a").tryLock());
+        } finally {
+            Assert.assertTrue(Thread.interrupted());
+        }
+        pool.unlock("a");
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+}
@@ -0,0 +1,37 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * @author xBlackCat
+ */
+public class HotKeySketchTest {
+    @Test
+    public void heavyHittersTest() {
+        HotKeySketch<Integer> sketch = new HotKeySketch<>(32);
+
+        for (int i = 0; i < 10000; i++) {
+            // Every third event is for key 1, every tenth is for key 2, the rest are unique keys
+            final int key = i % 3 == 0 ? 1 : i % 10 == 1 ? 2 : 1000 + i;
+            sketch.offer(key, 10);
+        }
+
+        final List<HotKeySketch.HotKey<Integer>> top = sketch.top(2);
+        Assert.assertEquals(2, top.size());
+        Assert.assertEquals(1, top.get(0).getKey().intValue());
+        Assert.assertEquals(2, top.get(1).getKey().intValue());
+        Assert.assertTrue(top.get(0).getCount() >= 3334);
+        Assert.assertTrue(top.get(0).getCount() - top.get(0).getError() <= 3334);
+        Assert.assertEquals(32, sketch.top(100).size());
+        Assert.assertTrue(sketch.top(0).isEmpty());
+        try {
+            sketch.top(-1);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xblackcat.sjpu.util.thread.TimerWheel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author xBlackCat
+ */
+public class LeaseLockPoolTest {
+    private static final TimerWheel TIMER = new TimerWheel("TestTimerWheel", 5, TimeUnit.MILLISECONDS, 64);
+
+    @AfterClass
+    public static void stopTimer() {
+        TIMER.close();
+    }
+
+    @Test
+    public void unlockTest() {
+        LeaseLockPool<Integer> pool = new LeaseLockPool<>(TIMER);
+
+        final ILease lease = pool.lock(10, 1, TimeUnit.MINUTES);
+        Assert.assertTrue(pool.isLocked(10));
+        Assert.assertNull(pool.tryLock(10, 1, TimeUnit.MINUTES));
+        Assert.assertEquals(1, pool.lockPool.get(10).getRequested());
+
+        Assert.assertTrue(lease.unlock());
+        Assert.assertFalse(lease.unlock());
+        Assert.assertFalse(lease.isExpired());
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void expireTest() throws InterruptedException {
+        LeaseLockPool<Integer> pool = new LeaseLockPool<>(TIMER);
+
+        final ILease lease = pool.lock(10, 50, TimeUnit.MILLISECONDS);
+
+        final ILease next = pool.tryLock(10, 5, 1, TimeUnit.SECONDS);
+        Assert.assertNotNull(next);
+        Assert.assertTrue(lease.isExpired());
+        Assert.assertFalse(lease.unlock());
+        Assert.assertFalse(lease.renew(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, pool.lockPool.get(10).getRequested());
+
+        next.close();
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void renewTest() throws InterruptedException {
+        LeaseLockPool<Integer> pool = new LeaseLockPool<>(TIMER);
+
+        final ILease lease = pool.lock(10, 100, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(50);
+            Assert.assertTrue(lease.renew(100, TimeUnit.MILLISECONDS));
+        }
+        Assert.assertFalse(lease.isExpired());
+        Assert.assertTrue(pool.isLocked(10));
+        Assert.assertTrue(lease.unlock());
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void stoppedTimerTest() {
+        final TimerWheel timer = new TimerWheel("StoppedTimerWheel");
+        timer.close();
+        LeaseLockPool<Integer> pool = new LeaseLockPool<>(timer);
+
+        try {
+            pool.lock(10, 1, TimeUnit.MINUTES);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        Assert.assertFalse(pool.isLocked(10));
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+}
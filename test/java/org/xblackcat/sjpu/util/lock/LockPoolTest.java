@@ -3,7 +3,16 @@ package org.xblackcat.sjpu.util.lock;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * 28.09.2015 11:20
@@ -41,9 +50,10 @@ public class LockPoolTest {
         Assert.assertEquals(1, pool.lockPool.size());
         Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
 
+        // Nested acquisition is counted by the current thread only
         lock.lock();
         Assert.assertEquals(1, pool.lockPool.size());
-        Assert.assertEquals(2, pool.lockPool.get(10).requested.get());
+        Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
 
         lock.unlock();
         Assert.assertEquals(1, pool.lockPool.size());
@@ -80,11 +90,226 @@ public class LockPoolTest {
         Assert.assertEquals(0, pool.lockPool.size());
     }
 
+    @Test
+    public void directLockTest() throws InterruptedException {
+        LockPool<Integer> pool = new LockPool<>();
+
+        pool.lock(10);
+        Assert.assertEquals(1, pool.lockPool.size());
+        Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
+
+        Assert.assertTrue(pool.tryLock(20, 1, TimeUnit.SECONDS));
+        Assert.assertEquals(2, pool.lockPool.size());
+
+        pool.unlock(10);
+        Assert.assertEquals(1, pool.lockPool.size());
+        Assert.assertNull(pool.lockPool.get(10));
+
+        pool.unlock(20);
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void reentrancyTest() throws Exception {
+        LockPool<Integer> pool = new LockPool<>();
+
+        pool.lock(10);
+        final Lock lock = pool.getLock(10);
+        Assert.assertTrue(lock.tryLock());
+        Assert.assertTrue(pool.tryLock(10, 1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
+
+        pool.unlock(10);
+        lock.unlock();
+        Assert.assertEquals(1, pool.lockPool.size());
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Assert.assertFalse(executor.submit(() -> pool.getLock(10).tryLock()).get(1, TimeUnit.MINUTES));
+            // Only the owner thread could release the lock
+            executor.submit(() -> {
+                try {
+                    pool.unlock(10);
+                    Assert.fail();
+                } catch (IllegalStateException e) {
+                    // Expected
+                }
+            }).get(1, TimeUnit.MINUTES);
+            Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
+        } finally {
+            executor.shutdown();
+        }
+
+        pool.unlock(10);
+        Assert.assertEquals(0, pool.lockPool.size());
+
+        try {
+            pool.unlock(10);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void lockAllTest() throws Exception {
+        LockPool<Integer> pool = new LockPool<>();
+
+        final IMultiLock multiLock = pool.lockAll(Arrays.asList(30, 10, 20, 10));
+        Assert.assertEquals(3, pool.lockPool.size());
+        Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Assert.assertNull(executor.submit(() -> pool.tryLockAll(Arrays.asList(40, 20), 10, TimeUnit.MILLISECONDS)).get(1, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(3, pool.lockPool.size());
+
+        multiLock.unlock();
+        Assert.assertEquals(0, pool.lockPool.size());
+
+        // Repeated release has no effect
+        pool.lock(10);
+        multiLock.close();
+        Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
+        pool.unlock(10);
+    }
+
+    @Test
+    public void lockOrderTest() {
+        final List<Object> keys = Arrays.asList("b", 2L, 1, "a", 3, new TestKey(1, "x"), new TestKey(1, "y"), null);
+        final List<Object> ordered = LockOrder.sortedDistinct(keys);
+        Assert.assertEquals(
+                Arrays.asList(null, 1, 3, 2L, "a", "b", new TestKey(1, "x"), new TestKey(1, "y")),
+                ordered
+        );
+
+        // Equal keys are ordered the same way regardless of instances
+        Assert.assertEquals(0, LockOrder.compare(new TestKey(1, "x"), new TestKey(1, "x")));
+
+        // Keys with the natural order inconsistent with equals are still distinct
+        final BigDecimal a = new BigDecimal("1.0");
+        final BigDecimal b = new BigDecimal("1.00");
+        Assert.assertNotEquals(0, LockOrder.compare(a, b));
+        Assert.assertEquals(-LockOrder.compare(a, b), LockOrder.compare(b, a));
+        final List<BigDecimal> decimals = LockOrder.sortedDistinct(Arrays.asList(BigDecimal.TEN, b, a, BigDecimal.ZERO));
+        Assert.assertEquals(4, decimals.size());
+        Assert.assertEquals(BigDecimal.ZERO, decimals.get(0));
+        Assert.assertEquals(BigDecimal.TEN, decimals.get(3));
+    }
+
+    @Test
+    public void metricsTest() throws InterruptedException {
+        LockPool<Integer> pool = new LockPool<>(() -> new ReentrantLock(), new LockPoolMetrics<>(4));
+        final LockPoolMetrics<Integer> metrics = pool.getMetrics();
+
+        pool.lock(10);
+        pool.lock(10);
+        pool.lock(20);
+        Assert.assertEquals(2, metrics.getLiveHolders());
+
+        Thread t = new Thread(() -> {
+            pool.lock(10);
+            pool.unlock(10);
+        });
+        t.start();
+        while (t.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+
+        pool.unlock(20);
+        pool.unlock(10);
+        pool.unlock(10);
+        t.join();
+
+        Assert.assertEquals(4, metrics.getAcquires());
+        Assert.assertEquals(1, metrics.getContendedAcquires());
+        Assert.assertTrue(metrics.getMaxWaitNanos() > 0);
+        Assert.assertEquals(metrics.getMaxWaitNanos(), metrics.getTotalWaitNanos());
+        Assert.assertEquals(3, Arrays.stream(metrics.getHoldTimeHistogram()).sum());
+        Assert.assertEquals(0, metrics.getLiveHolders());
+        Assert.assertEquals(2, metrics.getPeakHolders());
+
+        final List<HotKeySketch.HotKey<Integer>> hotKeys = pool.topContendedKeys(10);
+        Assert.assertEquals(1, hotKeys.size());
+        Assert.assertEquals(10, hotKeys.get(0).getKey().intValue());
+        Assert.assertEquals(1, hotKeys.get(0).getCount());
+        Assert.assertEquals(metrics.getTotalWaitNanos(), hotKeys.get(0).getWaitNanos());
+
+        // An interrupted thread acquires a free lock without contention and keeps its interrupted status
+        Thread.currentThread().interrupt();
+        pool.lock(30);
+        Assert.assertTrue(Thread.interrupted());
+        pool.unlock(30);
+        Assert.assertEquals(5, metrics.getAcquires());
+        Assert.assertEquals(1, metrics.getContendedAcquires());
+    }
+
+    @Test
+    public void metricsNestedHoldsTest() {
+        // Nested holds are measured once for any reentrant lock implementation
+        LockPool<Integer> pool = new LockPool<>(() -> new ReentrantReadWriteLock().writeLock(), new LockPoolMetrics<>());
+        final LockPoolMetrics<Integer> metrics = pool.getMetrics();
+
+        pool.lock(10);
+        pool.lock(10);
+        pool.unlock(10);
+        Assert.assertEquals(0, Arrays.stream(metrics.getHoldTimeHistogram()).sum());
+        pool.unlock(10);
+        Assert.assertEquals(1, Arrays.stream(metrics.getHoldTimeHistogram()).sum());
+        Assert.assertEquals(2, metrics.getAcquires());
+    }
+
+    @Test
+    public void conditionTest() throws InterruptedException {
+        LockPool<Integer> pool = new LockPool<>();
+
+        // A condition could be obtained before the lock is acquired
+        final Lock lock = pool.getLock(10);
+        final Condition condition = lock.newCondition();
+        Assert.assertEquals(1, pool.lockPool.size());
+
+        lock.lock();
+        try {
+            Assert.assertFalse(condition.await(1, TimeUnit.MILLISECONDS));
+        } finally {
+            lock.unlock();
+        }
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
     @Test
     public void multiThreadTest() {
 
     }
 
+    private static final class TestKey {
+        private final int hash;
+        private final String name;
+
+        private TestKey(int hash, String name) {
+            this.hash = hash;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestKey && ((TestKey) o).hash == hash && ((TestKey) o).name.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
     private final class TestThread implements Runnable {
         @Override
         public void run() {
@@ -0,0 +1,75 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author xBlackCat
+ */
+public class LongLockPoolTest {
+    @Test
+    public void tableTest() throws InterruptedException {
+        LongLockPool pool = new LongLockPool(2, ReentrantLock::new);
+
+        for (long key = 0; key < 1000; key++) {
+            pool.lock(key << 32);
+        }
+        Assert.assertEquals(1000, pool.size());
+
+        pool.lock(0);
+        Assert.assertEquals(1000, pool.size());
+        pool.unlock(0);
+
+        for (long key = 0; key < 1000; key += 2) {
+            pool.unlock(key << 32);
+        }
+        Assert.assertEquals(500, pool.size());
+
+        for (long key = 1; key < 1000; key += 2) {
+            Assert.assertTrue(pool.tryLock(key << 32, 1, TimeUnit.SECONDS));
+            pool.unlock(key << 32);
+            pool.unlock(key << 32);
+        }
+        Assert.assertEquals(0, pool.size());
+
+        try {
+            pool.unlock(1);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void multiThreadTest() throws InterruptedException {
+        LongLockPool pool = new LongLockPool();
+        final int[] counters = new int[16];
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    final int key = j % counters.length;
+                    pool.lock(Long.MAX_VALUE - key);
+                    try {
+                        counters[key]++;
+                    } finally {
+                        pool.unlock(Long.MAX_VALUE - key);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        for (int c : counters) {
+            Assert.assertEquals(5000, c);
+        }
+        Assert.assertEquals(0, pool.size());
+    }
+}
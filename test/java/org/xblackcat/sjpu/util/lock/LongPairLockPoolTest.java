@@ -0,0 +1,91 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author xBlackCat
+ */
+public class LongPairLockPoolTest {
+    @Test
+    public void tableTest() throws InterruptedException {
+        LongPairLockPool pool = new LongPairLockPool(2, ReentrantLock::new);
+
+        for (long key = 0; key < 1000; key++) {
+            pool.lock(key % 10, key);
+        }
+        Assert.assertEquals(1000, pool.size());
+
+        pool.lock(0, 0);
+        Assert.assertEquals(1000, pool.size());
+        pool.unlock(0, 0);
+
+        for (long key = 0; key < 1000; key += 2) {
+            pool.unlock(key % 10, key);
+        }
+        Assert.assertEquals(500, pool.size());
+
+        for (long key = 1; key < 1000; key += 2) {
+            Assert.assertTrue(pool.tryLock(key % 10, key, 1, TimeUnit.SECONDS));
+            pool.unlock(key % 10, key);
+            pool.unlock(key % 10, key);
+        }
+        Assert.assertEquals(0, pool.size());
+
+        try {
+            pool.unlock(1, 0);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void objLongTest() throws Exception {
+        ObjLongLockPool<String> pool = new ObjLongLockPool<>();
+        final int[] counters = new int[16];
+        final String[] tenants = {"a", "b", null};
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    final int key = j % counters.length;
+                    final String tenant = tenants[key % tenants.length];
+                    pool.lock(tenant, key);
+                    try {
+                        counters[key]++;
+                    } finally {
+                        pool.unlock(tenant, key);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        for (int c : counters) {
+            Assert.assertEquals(5000, c);
+        }
+        Assert.assertEquals(0, pool.size());
+
+        pool.lock("a", 1);
+        final ExecutorService singleExecutor = Executors.newSingleThreadExecutor();
+        try {
+            singleExecutor.submit(() -> {
+                Assert.assertFalse(pool.tryLock(new String("a"), 1));
+                Assert.assertTrue(pool.tryLock("a", 2));
+                pool.unlock("a", 2);
+            }).get(1, TimeUnit.MINUTES);
+        } finally {
+            singleExecutor.shutdown();
+        }
+        pool.unlock("a", 1);
+        Assert.assertEquals(0, pool.size());
+    }
+}
@@ -0,0 +1,169 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author xBlackCat
+ */
+public class PriorityLockPoolTest {
+    @Test
+    public void priorityHandoffTest() throws InterruptedException {
+        PriorityLockPool<Integer> pool = new PriorityLockPool<>(1, TimeUnit.HOURS);
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+
+        pool.lock(10);
+        final PriorityLock lock = (PriorityLock) pool.lockPool.get(10).getLock();
+
+        final Thread[] threads = new Thread[3];
+        final int[] priorities = {0, 1, 5};
+        for (int i = 0; i < threads.length; i++) {
+            final int priority = priorities[i];
+            threads[i] = new Thread(() -> {
+                pool.lock(10, priority);
+                try {
+                    order.add(priority);
+                } finally {
+                    pool.unlock(10);
+                }
+            });
+            threads[i].start();
+            while (lock.getQueueLength() < i + 1) {
+                Thread.sleep(1);
+            }
+        }
+        Assert.assertEquals(4, pool.lockPool.get(10).getRequested());
+
+        pool.unlock(10);
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        Assert.assertArrayEquals(new Object[]{5, 1, 0}, order.toArray());
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void extremePrioritiesTest() throws InterruptedException {
+        PriorityLock lock = new PriorityLock(1, TimeUnit.HOURS);
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+
+        lock.lock();
+        final int[] priorities = {Integer.MIN_VALUE, PriorityLock.NORMAL_PRIORITY, Integer.MAX_VALUE, -1};
+        final Thread[] threads = new Thread[priorities.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int priority = priorities[i];
+            threads[i] = new Thread(() -> {
+                lock.lock(priority);
+                order.add(priority);
+                lock.unlock();
+            });
+            threads[i].start();
+            while (lock.getQueueLength() < i + 1) {
+                Thread.sleep(1);
+            }
+        }
+
+        lock.unlock();
+        for (Thread t : threads) {
+            t.join();
+        }
+        Assert.assertArrayEquals(
+                new Object[]{Integer.MAX_VALUE, PriorityLock.NORMAL_PRIORITY, -1, Integer.MIN_VALUE},
+                order.toArray()
+        );
+    }
+
+    @Test
+    public void agingTest() throws InterruptedException {
+        PriorityLock lock = new PriorityLock(10, TimeUnit.MILLISECONDS);
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+
+        lock.lock();
+        Thread low = new Thread(() -> {
+            lock.lock(0);
+            order.add(0);
+            lock.unlock();
+        });
+        low.start();
+        while (lock.getQueueLength() < 1) {
+            Thread.sleep(1);
+        }
+
+        // The low priority waiter has waited longer than the aging period of a single priority level
+        Thread.sleep(50);
+        Thread high = new Thread(() -> {
+            lock.lock(1);
+            order.add(1);
+            lock.unlock();
+        });
+        high.start();
+        while (lock.getQueueLength() < 2) {
+            Thread.sleep(1);
+        }
+
+        lock.unlock();
+        low.join();
+        high.join();
+        Assert.assertArrayEquals(new Object[]{0, 1}, order.toArray());
+    }
+
+    @Test
+    public void invalidArgumentsTest() {
+        try {
+            new PriorityLockPool<Integer>(-1, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            new PriorityLockPool<Integer>(1, null);
+            Assert.fail();
+        } catch (NullPointerException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void reentrancyTest() throws InterruptedException {
+        PriorityLockPool<Integer> pool = new PriorityLockPool<>();
+
+        pool.lock(10);
+        pool.lock(10, 5);
+        Assert.assertTrue(pool.tryLock(10, PriorityLock.MAX_PRIORITY, 1, TimeUnit.SECONDS));
+        pool.getLock(10, 1).lockInterruptibly();
+        // Nested acquisitions are counted by the current thread only
+        Assert.assertEquals(1, pool.lockPool.get(10).getRequested());
+
+        pool.unlock(10);
+        pool.unlock(10);
+        pool.getLock(10, 1).unlock();
+        Assert.assertEquals(1, pool.lockPool.size());
+        pool.unlock(10);
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void timeoutTest() throws Exception {
+        PriorityLockPool<Integer> pool = new PriorityLockPool<>();
+
+        pool.lock(10);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Assert.assertFalse(executor.submit(() -> pool.tryLock(10, 10, 10, TimeUnit.MILLISECONDS)).get(1, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(1, pool.lockPool.get(10).getRequested());
+        Assert.assertEquals(0, ((PriorityLock) pool.lockPool.get(10).getLock()).getQueueLength());
+        pool.unlock(10);
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+}
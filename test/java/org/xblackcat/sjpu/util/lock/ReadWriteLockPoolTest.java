@@ -0,0 +1,50 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * @author xBlackCat
+ */
+public class ReadWriteLockPoolTest {
+    @Test
+    public void sharedCounterTest() throws Exception {
+        ReadWriteLockPool<Integer> pool = new ReadWriteLockPool<>();
+
+        final ReadWriteLock lock = pool.getReadWriteLock(10);
+        Assert.assertEquals(0, pool.lockPool.size());
+
+        lock.readLock().lock();
+        Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                final ReadWriteLock l = pool.getReadWriteLock(10);
+                Assert.assertTrue(l.readLock().tryLock());
+                Assert.assertFalse(l.writeLock().tryLock());
+                l.readLock().unlock();
+            }).get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
+
+        Assert.assertFalse(lock.writeLock().tryLock());
+        Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
+
+        lock.readLock().unlock();
+        Assert.assertEquals(0, pool.lockPool.size());
+
+        lock.writeLock().lock();
+        Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
+        lock.writeLock().unlock();
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+}
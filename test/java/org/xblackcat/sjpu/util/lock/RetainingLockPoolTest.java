@@ -0,0 +1,117 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * @author xBlackCat
+ */
+public class RetainingLockPoolTest {
+    @Test
+    public void retentionTest() {
+        RetainingLockPool<Integer> pool = new RetainingLockPool<>(1, TimeUnit.MINUTES, 2);
+
+        pool.lock(10);
+        final RetainingLockPool.RetainedHolder holder = pool.lockPool.get(10);
+        Assert.assertEquals(1, holder.getRequested());
+        pool.unlock(10);
+        Assert.assertEquals(1, pool.lockPool.size());
+        Assert.assertEquals(1, pool.getIdleHolders());
+
+        pool.lock(10);
+        Assert.assertSame(holder, pool.lockPool.get(10));
+        Assert.assertEquals(0, pool.getIdleHolders());
+        pool.unlock(10);
+
+        for (int i = 0; i < 5; i++) {
+            pool.lock(i);
+            pool.unlock(i);
+        }
+        Assert.assertEquals(2, pool.getIdleHolders());
+        Assert.assertEquals(2, pool.lockPool.size());
+        // The oldest idle holders are evicted first
+        Assert.assertTrue(pool.lockPool.containsKey(3));
+        Assert.assertTrue(pool.lockPool.containsKey(4));
+    }
+
+    @Test
+    public void foreignUnlockTest() throws Exception {
+        RetainingLockPool<Integer> pool = new RetainingLockPool<>(1, TimeUnit.MINUTES, 2);
+
+        pool.lock(10);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> {
+                try {
+                    pool.unlock(10);
+                    Assert.fail();
+                } catch (IllegalStateException e) {
+                    // Expected
+                }
+            }).get(1, TimeUnit.MINUTES);
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(1, pool.lockPool.get(10).getRequested());
+        Assert.assertEquals(0, pool.getIdleHolders());
+
+        pool.unlock(10);
+        Assert.assertEquals(1, pool.getIdleHolders());
+    }
+
+    @Test
+    public void ttlTest() throws InterruptedException {
+        RetainingLockPool<Integer> pool = new RetainingLockPool<>(10, TimeUnit.MILLISECONDS, 100);
+
+        final Lock lock = pool.getLock(10);
+        lock.lock();
+        lock.unlock();
+        Assert.assertEquals(1, pool.lockPool.size());
+
+        Thread.sleep(20);
+        pool.cleanUp();
+        Assert.assertEquals(0, pool.lockPool.size());
+        Assert.assertEquals(0, pool.getIdleHolders());
+
+        try {
+            lock.unlock();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void multiThreadTest() throws InterruptedException {
+        RetainingLockPool<Integer> pool = new RetainingLockPool<>(0, TimeUnit.MILLISECONDS, 0);
+        final int[] counters = new int[4];
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    final int key = j % counters.length;
+                    pool.lock(key);
+                    try {
+                        counters[key]++;
+                    } finally {
+                        pool.unlock(key);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        for (int c : counters) {
+            Assert.assertEquals(20000, c);
+        }
+        pool.cleanUp();
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+}
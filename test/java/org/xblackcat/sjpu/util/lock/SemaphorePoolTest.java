@@ -0,0 +1,54 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author xBlackCat
+ */
+public class SemaphorePoolTest {
+    @Test
+    public void permitsTest() throws InterruptedException {
+        SemaphorePool<Integer> pool = new SemaphorePool<>(id -> id);
+
+        pool.acquire(3, 2);
+        Assert.assertEquals(1, pool.lockPool.size());
+        Assert.assertEquals(2, pool.lockPool.get(3).getRequested());
+        Assert.assertEquals(1, pool.lockPool.get(3).getSemaphore().availablePermits());
+
+        Assert.assertFalse(pool.tryAcquire(3, 2, 10, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(2, pool.lockPool.get(3).getRequested());
+
+        Assert.assertTrue(pool.tryAcquire(3, 10, TimeUnit.MILLISECONDS));
+        Assert.assertTrue(pool.tryAcquire(1, 10, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(2, pool.lockPool.size());
+
+        pool.release(3);
+        pool.release(1);
+        Assert.assertEquals(1, pool.lockPool.size());
+
+        try {
+            pool.release(3, 0);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        Assert.assertEquals(2, pool.lockPool.get(3).getRequested());
+
+        // Over-release would break the limit of the semaphore
+        try {
+            pool.release(3, 3);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        Assert.assertEquals(2, pool.lockPool.get(3).getRequested());
+        Assert.assertEquals(2, pool.lockPool.get(3).getAcquired());
+        Assert.assertEquals(1, pool.lockPool.get(3).getSemaphore().availablePermits());
+
+        pool.release(3, 2);
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+}
@@ -0,0 +1,98 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author xBlackCat
+ */
+public class SingleFlightTest {
+    @Test
+    public void coalescingTest() throws Exception {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> singleFlight.execute(10, () -> {
+                started.countDown();
+                release.await();
+                return "Value " + loads.incrementAndGet();
+            })));
+            started.await();
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> singleFlight.execute(10, () -> "Value " + loads.incrementAndGet())));
+            }
+
+            // The leader is blocked until all the followers wait for the flight
+            final SingleFlight.Flight<String> flight = singleFlight.flights.get(10);
+            while (flight.getNumberOfDependents() < 3) {
+                Thread.sleep(1);
+            }
+            Assert.assertEquals(1, singleFlight.getInFlight());
+            release.countDown();
+
+            for (Future<String> f : results) {
+                Assert.assertEquals("Value 1", f.get(1, TimeUnit.MINUTES));
+            }
+            Assert.assertEquals(0, singleFlight.getInFlight());
+            Assert.assertEquals("Value 2", singleFlight.execute(10, () -> "Value " + loads.incrementAndGet()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void exceptionTest() throws InterruptedException {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+        try {
+            singleFlight.execute(10, () -> {
+                throw new IOException("Test");
+            });
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("Test", e.getMessage());
+        }
+        Assert.assertEquals(0, singleFlight.getInFlight());
+    }
+
+    @Test
+    public void interruptedFollowerTest() throws Exception {
+        SingleFlight<Integer, String> singleFlight = new SingleFlight<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> leader = executor.submit(() -> singleFlight.execute(10, () -> {
+                started.countDown();
+                release.await();
+                return "Value";
+            }));
+            started.await();
+
+            Thread.currentThread().interrupt();
+            try {
+                singleFlight.execute(10, () -> "Other");
+                Assert.fail();
+            } catch (InterruptedException e) {
+                // Expected
+            }
+            Assert.assertEquals(1, singleFlight.getInFlight());
+
+            release.countDown();
+            Assert.assertEquals("Value", leader.get(1, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
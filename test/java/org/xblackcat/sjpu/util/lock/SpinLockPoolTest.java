@@ -0,0 +1,93 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * @author xBlackCat
+ */
+public class SpinLockPoolTest {
+    @Test
+    public void reentrancyTest() throws Exception {
+        SpinLock lock = new SpinLock(IWaitStrategy.park());
+
+        lock.lock();
+        lock.lock();
+        Assert.assertTrue(lock.isHeldByCurrentThread());
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Assert.assertFalse(executor.submit(() -> lock.tryLock()).get(1, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdown();
+        }
+
+        lock.unlock();
+        Assert.assertTrue(lock.isLocked());
+        lock.unlock();
+        Assert.assertFalse(lock.isLocked());
+
+        try {
+            lock.unlock();
+            Assert.fail();
+        } catch (IllegalMonitorStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void timedTryLockTest() throws Exception {
+        SpinLock lock = new SpinLock(IWaitStrategy.park());
+        lock.lock();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Assert.assertFalse(executor.submit(() -> lock.tryLock(20, TimeUnit.MILLISECONDS)).get(1, TimeUnit.MINUTES));
+        } finally {
+            executor.shutdown();
+        }
+
+        lock.unlock();
+    }
+
+    @Test
+    public void strategiesTest() throws InterruptedException {
+        checkPool(new SpinLockPool<>(IWaitStrategy.busySpin()));
+        checkPool(new SpinLockPool<>(IWaitStrategy.spinThenYield(100)));
+        checkPool(new SpinLockPool<>(IWaitStrategy.backoff(100, 100_000)));
+        checkPool(new SpinLockPool<>(IWaitStrategy.park()));
+        checkPool(new SpinLockPool<>(IWaitStrategy.adaptive()));
+    }
+
+    private static void checkPool(SpinLockPool<Integer> pool) throws InterruptedException {
+        final int[] counters = new int[4];
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 4; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    final int key = j % counters.length;
+                    final Lock lock = pool.getLock(key);
+                    lock.lock();
+                    try {
+                        counters[key]++;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        for (int c : counters) {
+            Assert.assertEquals(10000, c);
+        }
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+}
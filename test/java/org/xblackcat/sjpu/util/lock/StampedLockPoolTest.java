@@ -0,0 +1,39 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author xBlackCat
+ */
+public class StampedLockPoolTest {
+    @Test
+    public void optimisticReadTest() {
+        StampedLockPool<Integer> pool = new StampedLockPool<>();
+
+        long stamp = pool.tryOptimisticRead(10);
+        Assert.assertNotEquals(0, stamp);
+        Assert.assertEquals(0, pool.lockPool.size());
+        Assert.assertTrue(pool.validate(10, stamp));
+
+        final long writeStamp = pool.writeLock(10);
+        Assert.assertEquals(1, pool.lockPool.size());
+        Assert.assertFalse(pool.validate(10, stamp));
+        Assert.assertEquals(0, pool.tryOptimisticRead(10));
+
+        pool.unlockWrite(10, writeStamp);
+        Assert.assertEquals(0, pool.lockPool.size());
+        Assert.assertFalse(pool.validate(10, stamp));
+
+        stamp = pool.tryOptimisticRead(10);
+        Assert.assertNotEquals(0, stamp);
+
+        final long readStamp = pool.readLock(10);
+        Assert.assertEquals(1, pool.lockPool.size());
+        Assert.assertTrue(pool.validate(10, stamp));
+
+        pool.unlockRead(10, readStamp);
+        Assert.assertEquals(0, pool.lockPool.size());
+        Assert.assertTrue(pool.validate(10, stamp));
+    }
+}
@@ -0,0 +1,34 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * @author xBlackCat
+ */
+public class StripedLockPoolTest {
+    @Test
+    public void stripesTest() {
+        Assert.assertEquals(1, new StripedLockPool<Integer>(1).getStripesAmount());
+        Assert.assertEquals(16, new StripedLockPool<Integer>(16).getStripesAmount());
+        Assert.assertEquals(32, new StripedLockPool<Integer>(17).getStripesAmount());
+    }
+
+    @Test
+    public void distributionTest() {
+        StripedLockPool<Integer> pool = new StripedLockPool<>(16);
+
+        Assert.assertSame(pool.getLock(10), pool.getLock(10));
+        Assert.assertSame(pool.getLock(null), pool.getLock(null));
+
+        Set<Lock> locks = new HashSet<>();
+        for (int i = 0; i < 1024; i++) {
+            locks.add(pool.getLock(i << 8));
+        }
+        Assert.assertEquals(16, locks.size());
+    }
+}
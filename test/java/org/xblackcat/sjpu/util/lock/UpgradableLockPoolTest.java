@@ -0,0 +1,233 @@
+package org.xblackcat.sjpu.util.lock;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * @author xBlackCat
+ */
+public class UpgradableLockPoolTest {
+    @Test
+    public void modesTest() throws Exception {
+        UpgradableLockPool<Integer> pool = new UpgradableLockPool<>();
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final IUpgradableLock lock = pool.getUpgradableLock(10);
+            lock.lock();
+            Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
+
+            executor.submit(() -> {
+                final ReadWriteLock rw = pool.getReadWriteLock(10);
+                Assert.assertTrue(rw.readLock().tryLock());
+                rw.readLock().unlock();
+                Assert.assertFalse(rw.writeLock().tryLock());
+                Assert.assertFalse(pool.getUpgradableLock(10).tryLock());
+            }).get(1, TimeUnit.MINUTES);
+            Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
+
+            lock.upgrade();
+            Assert.assertTrue(lock.isUpgraded());
+            Assert.assertFalse(executor.submit(() -> pool.getReadWriteLock(10).readLock().tryLock()).get(1, TimeUnit.MINUTES));
+
+            lock.downgrade();
+            Assert.assertFalse(lock.isUpgraded());
+            lock.upgrade();
+            lock.unlock();
+            Assert.assertEquals(0, pool.lockPool.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void upgradeWaitsForReadersTest() throws InterruptedException {
+        UpgradableLockPool<Integer> pool = new UpgradableLockPool<>();
+        final CountDownLatch readLocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicBoolean readerActive = new AtomicBoolean();
+
+        Thread reader = new Thread(() -> {
+            final ReadWriteLock rw = pool.getReadWriteLock(10);
+            rw.readLock().lock();
+            readerActive.set(true);
+            readLocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                readerActive.set(false);
+                rw.readLock().unlock();
+            }
+        });
+        reader.start();
+        readLocked.await();
+
+        final IUpgradableLock lock = pool.getUpgradableLock(10);
+        lock.lock();
+        Assert.assertFalse(lock.tryUpgrade(10, TimeUnit.MILLISECONDS));
+        Assert.assertFalse(lock.isUpgraded());
+
+        release.countDown();
+        lock.upgrade();
+        Assert.assertFalse(readerActive.get());
+        lock.unlock();
+        reader.join();
+
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    @Test
+    public void writerPreferenceTest() throws Exception {
+        final UpgradableReadWriteLock rw = new UpgradableReadWriteLock();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            rw.readLock().lock();
+            final Future<?> writer = executor.submit(() -> {
+                rw.writeLock().lock();
+                rw.writeLock().unlock();
+            });
+            awaitQueuedWriter(rw);
+
+            // New readers and upgraders are not admitted while the writer waits
+            Assert.assertFalse(executor.submit(() -> rw.readLock().tryLock()).get(1, TimeUnit.MINUTES));
+            Assert.assertFalse(executor.submit(() -> rw.upgradableLock().tryLock()).get(1, TimeUnit.MINUTES));
+
+            rw.readLock().unlock();
+            writer.get(1, TimeUnit.MINUTES);
+            Assert.assertTrue(rw.readLock().tryLock());
+            rw.readLock().unlock();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void interruptedUpgradeTest() throws Exception {
+        final UpgradableReadWriteLock rw = new UpgradableReadWriteLock();
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            rw.readLock().lock();
+            final CountDownLatch upgradeLocked = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final AtomicReference<Thread> upgraderThread = new AtomicReference<>();
+            final Future<Boolean> upgrader = executor.submit(() -> {
+                upgraderThread.set(Thread.currentThread());
+                rw.upgradableLock().lock();
+                try {
+                    upgradeLocked.countDown();
+                    return rw.upgradableLock().tryUpgrade(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    // Keep the upgradable lock: the failed upgrade should let readers in by itself
+                    release.await();
+                    return false;
+                } finally {
+                    rw.upgradableLock().unlock();
+                }
+            });
+            upgradeLocked.await();
+            Thread.sleep(20);
+
+            // The reader is blocked by the pending upgrade
+            final Future<?> reader = executor.submit(() -> {
+                rw.readLock().lock();
+                rw.readLock().unlock();
+            });
+            try {
+                reader.get(20, TimeUnit.MILLISECONDS);
+                Assert.fail();
+            } catch (TimeoutException e) {
+                // Expected
+            }
+
+            upgraderThread.get().interrupt();
+            reader.get(1, TimeUnit.MINUTES);
+            release.countDown();
+            Assert.assertFalse(upgrader.get(1, TimeUnit.MINUTES));
+            rw.readLock().unlock();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void nestedWriteHoldsTest() {
+        final UpgradableReadWriteLock rw = new UpgradableReadWriteLock();
+        final IUpgradableLock lock = rw.upgradableLock();
+
+        lock.lock();
+        lock.upgrade();
+        rw.writeLock().lock();
+        try {
+            lock.unlock();
+            Assert.fail();
+        } catch (IllegalMonitorStateException e) {
+            // Expected
+        }
+        Assert.assertTrue(lock.isUpgraded());
+
+        rw.writeLock().unlock();
+        lock.unlock();
+        Assert.assertFalse(lock.isUpgraded());
+        Assert.assertTrue(rw.writeLock().tryLock());
+        rw.writeLock().unlock();
+    }
+
+    @Test
+    public void readByHolderTest() throws Exception {
+        final UpgradableReadWriteLock rw = new UpgradableReadWriteLock();
+        final IUpgradableLock lock = rw.upgradableLock();
+
+        lock.lock();
+        try {
+            rw.readLock().lock();
+            Assert.fail();
+        } catch (IllegalMonitorStateException e) {
+            // Expected
+        }
+        lock.upgrade();
+        try {
+            rw.readLock().tryLock(1, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (IllegalMonitorStateException e) {
+            // Expected
+        }
+        lock.unlock();
+
+        rw.writeLock().lock();
+        try {
+            rw.readLock().tryLock();
+            Assert.fail();
+        } catch (IllegalMonitorStateException e) {
+            // Expected
+        }
+        rw.writeLock().unlock();
+        Assert.assertEquals(0, rw.getReadLockCount());
+
+        // The pool releases the holder when the read lock is rejected
+        UpgradableLockPool<Integer> pool = new UpgradableLockPool<>();
+        final IUpgradableLock upgradable = pool.getUpgradableLock(10);
+        upgradable.lock();
+        try {
+            pool.getReadWriteLock(10).readLock().lock();
+            Assert.fail();
+        } catch (IllegalMonitorStateException e) {
+            // Expected
+        }
+        Assert.assertEquals(1, pool.lockPool.get(10).requested.get());
+        upgradable.unlock();
+        Assert.assertEquals(0, pool.lockPool.size());
+    }
+
+    private static void awaitQueuedWriter(UpgradableReadWriteLock rw) throws InterruptedException {
+        while (rw.getQueuedWriters() == 0) {
+            Thread.sleep(1);
+        }
+    }
+}
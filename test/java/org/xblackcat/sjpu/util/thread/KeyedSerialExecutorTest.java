@@ -0,0 +1,110 @@
+package org.xblackcat.sjpu.util.thread;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author xBlackCat
+ */
+public class KeyedSerialExecutorTest {
+    @Test
+    public void orderTest() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            KeyedSerialExecutor<Integer> executor = new KeyedSerialExecutor<>(executorService);
+
+            final List<List<Integer>> results = new ArrayList<>();
+            final List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int k = 0; k < 4; k++) {
+                results.add(new ArrayList<>());
+            }
+            for (int i = 0; i < 1000; i++) {
+                final int value = i;
+                final List<Integer> result = results.get(i % 4);
+                futures.add(executor.execute(i % 4, () -> result.add(value)));
+            }
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()])).get(1, TimeUnit.MINUTES);
+            for (int k = 0; k < 4; k++) {
+                final List<Integer> result = results.get(k);
+                Assert.assertEquals(250, result.size());
+                for (int i = 0; i < result.size(); i++) {
+                    Assert.assertEquals(k + i * 4, result.get(i).intValue());
+                }
+            }
+
+            final CompletableFuture<Void> failed = executor.execute(1, () -> {
+                throw new IOException("Test");
+            });
+            try {
+                failed.get(1, TimeUnit.MINUTES);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof IOException);
+            }
+            executor.execute(1, () -> {
+            }).get(1, TimeUnit.MINUTES);
+
+            // Queue is evicted right after the last task is finished
+            for (int i = 0; i < 100 && executor.getActiveKeys() > 0; i++) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(0, executor.getActiveKeys());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void sameThreadDelegateTest() throws Exception {
+        KeyedSerialExecutor<Integer> executor = new KeyedSerialExecutor<>(Runnable::run);
+        final int[] counter = new int[1];
+        final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        // Tasks queued by the running task are executed after it without growing the stack
+        executor.execute(1, () -> {
+            for (int i = 0; i < 100000; i++) {
+                futures.add(executor.execute(1, () -> counter[0]++));
+            }
+        }).get(1, TimeUnit.MINUTES);
+
+        Assert.assertEquals(100000, counter[0]);
+        for (CompletableFuture<Void> f : futures) {
+            Assert.assertTrue(f.isDone() && !f.isCompletedExceptionally());
+        }
+        Assert.assertEquals(0, executor.getActiveKeys());
+    }
+
+    @Test
+    public void failingDelegateTest() throws Exception {
+        final AtomicBoolean fail = new AtomicBoolean(true);
+        KeyedSerialExecutor<Integer> executor = new KeyedSerialExecutor<>(r -> {
+            if (fail.get()) {
+                throw new IllegalStateException("Test");
+            }
+            r.run();
+        });
+
+        final CompletableFuture<Void> failed = executor.execute(1, () -> {
+        });
+        try {
+            failed.get(1, TimeUnit.MINUTES);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertEquals(0, executor.getActiveKeys());
+
+        // The key is still served
+        fail.set(false);
+        executor.execute(1, () -> {
+        }).get(1, TimeUnit.MINUTES);
+        Assert.assertEquals(0, executor.getActiveKeys());
+    }
+}